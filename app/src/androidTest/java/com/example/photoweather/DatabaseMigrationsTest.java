@@ -0,0 +1,165 @@
+package com.example.photoweather;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of migrations from oldest version history is kept from to latest one,
+ * old versions are made from schemas Room exported into app/schemas
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMigrationsTest {
+
+    // name of DB made by tests, helper deletes it after every test
+    private static final String TEST_DB = "migration-test";
+    // first version that has capture jobs, migrations before it only add tables
+    private static final int OLDEST_VERSION = 4;
+    // version PhotoDatabase is at now
+    private static final int LATEST_VERSION = 7;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            PhotoDatabase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrateToLatest_convertsTimeStamps() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, OLDEST_VERSION);
+        db.execSQL("INSERT INTO photo_table (id, url, timeStamp) VALUES (1, 'content://photos/1', '20200401_153012')");
+        db.execSQL("INSERT INTO photo_table (id, url, timeStamp) VALUES (2, 'content://photos/2', 'not a time')");
+        db.execSQL("INSERT INTO capture_job_table (imageUri, fileName, timeStamp, state, createdAt) "
+                + "VALUES ('content://camera/1', 'photo.jpg', '20200401_153012', 'captured', 1585747812345)");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, LATEST_VERSION, true, DatabaseMigrations.ALL);
+
+        // time stamps were written in local time of device
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2020, Calendar.APRIL, 1, 15, 30, 12);
+        assertEquals(calendar.getTimeInMillis(), takenAt(db, "SELECT takenAt FROM photo_table WHERE id = 1"));
+        // time stamp that can't be read keeps photo but sorts it last
+        assertEquals(0, takenAt(db, "SELECT takenAt FROM photo_table WHERE id = 2"));
+        // capture job takes time camera was opened which is more precise than it's time stamp
+        assertEquals(1585747812345L, takenAt(db, "SELECT takenAt FROM capture_job_table"));
+        db.close();
+    }
+
+    @Test
+    public void migrateToLatest_keepsFirstPhotoOfSameUrl() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, OLDEST_VERSION);
+        db.execSQL("INSERT INTO photo_table (id, url, timeStamp) VALUES (1, 'content://photos/1', '20200401_153012')");
+        db.execSQL("INSERT INTO photo_table (id, url, timeStamp) VALUES (2, 'content://photos/2', '20200401_153013')");
+        db.execSQL("INSERT INTO photo_table (id, url, timeStamp) VALUES (3, 'content://photos/1', '20200401_153014')");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, LATEST_VERSION, true, DatabaseMigrations.ALL);
+
+        Cursor cursor = db.query("SELECT id, url FROM photo_table ORDER BY id");
+        try {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.moveToNext());
+            assertEquals(1, cursor.getInt(0));
+            assertEquals("content://photos/1", cursor.getString(1));
+            assertTrue(cursor.moveToNext());
+            assertEquals(2, cursor.getInt(0));
+        } finally {
+            cursor.close();
+        }
+
+        // unique index on url is in place so duplicate can't come back
+        db.execSQL("INSERT OR IGNORE INTO photo_table (url, takenAt) VALUES ('content://photos/1', 0)");
+        Cursor count = db.query("SELECT COUNT(*) FROM photo_table");
+        try {
+            assertTrue(count.moveToFirst());
+            assertEquals(2, count.getInt(0));
+        } finally {
+            count.close();
+        }
+        db.close();
+    }
+
+    @Test
+    public void migrate6To7_keepsSearchIndexInSync() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6);
+        db.execSQL("INSERT INTO photo_table (id, url, takenAt) VALUES (1, 'content://photos/1', 1000)");
+        db.execSQL("INSERT INTO weather_snapshot_table (photoId, cityKey, city, description, temperature, "
+                + "windSpeed, cloudiness, humidity, takenAt) VALUES (1, 'cairo', 'Cairo', 'light rain', 20, 3, 40, 70, 1000)");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 7, true, DatabaseMigrations.MIGRATION_6_7);
+
+        // weather stored before migration is indexed by rebuild
+        assertEquals(Arrays.asList(1), search(db, "cairo*"));
+
+        // insert
+        db.execSQL("INSERT INTO photo_table (id, url, takenAt) VALUES (2, 'content://photos/2', 2000)");
+        db.execSQL("INSERT INTO weather_snapshot_table (photoId, cityKey, city, main, description, temperature, "
+                + "windSpeed, cloudiness, humidity, takenAt) "
+                + "VALUES (2, 'london', 'London', 'Clouds', 'overcast clouds', 12, 5, 90, 80, 2000)");
+        assertEquals(Arrays.asList(2), search(db, "london* clouds*"));
+
+        // update, old words are gone and new ones are found
+        db.execSQL("UPDATE weather_snapshot_table SET city = 'Tokyo', cityKey = 'tokyo' WHERE photoId = 2");
+        assertTrue(search(db, "london*").isEmpty());
+        assertEquals(Arrays.asList(2), search(db, "tokyo*"));
+
+        // delete
+        db.execSQL("DELETE FROM weather_snapshot_table WHERE photoId = 1");
+        assertTrue(search(db, "cairo*").isEmpty());
+        assertTrue(search(db, "rain*").isEmpty());
+        assertEquals(Arrays.asList(2), search(db, "clouds*"));
+        db.close();
+    }
+
+    /**
+     * @param db         to query
+     * @param matchQuery full text query
+     * @return ids of photos whose weather matches query in order of id
+     */
+    private static List<Integer> search(SupportSQLiteDatabase db, String matchQuery) {
+        Cursor cursor = db.query("SELECT docid FROM weather_search_table "
+                + "WHERE weather_search_table MATCH ? ORDER BY docid", new Object[]{matchQuery});
+        try {
+            List<Integer> ids = new ArrayList<>();
+            while (cursor.moveToNext())
+                ids.add(cursor.getInt(0));
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @param db    to query
+     * @param query selecting one time in milliseconds
+     * @return time query selected
+     */
+    private static long takenAt(SupportSQLiteDatabase db, String query) {
+        Cursor cursor = db.query(query);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.photoweather.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.example.photoweather.capture.PaletteColorAnalyzer;
+import com.example.photoweather.capture.SampledColorAnalyzer;
+import com.example.photoweather.capture.TextColorAnalyzer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures picking color of weather text on photos of several sizes, Palette over whole photo
+ * as it used to be done against sampling only area behind text as it is done now
+ * <p>
+ * run with ./gradlew :app:connectedAndroidTest -PtestBuildType=benchmark on a physical device
+ */
+@RunWith(Parameterized.class)
+public class ColorAnalysisBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mWidth;
+    private final int mHeight;
+    private Bitmap mPhoto;
+    private Rect mTextRegion;
+
+    /**
+     * @param width  of photo
+     * @param height of photo
+     */
+    public ColorAnalysisBenchmark(int width, int height) {
+        this.mWidth = width;
+        this.mHeight = height;
+    }
+
+    @Parameterized.Parameters(name = "{0}x{1}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (int[] size : Fixtures.PHOTO_SIZES)
+            parameters.add(new Object[]{size[0], size[1]});
+        return parameters;
+    }
+
+    @Before
+    public void setUp() {
+        mPhoto = Fixtures.createPhoto(mWidth, mHeight);
+        // top left area weather text covers on photos
+        mTextRegion = new Rect(0, 0, mWidth / 2, mHeight / 4);
+    }
+
+    @After
+    public void tearDown() {
+        mPhoto.recycle();
+    }
+
+    @Test
+    public void palette() {
+        measure(new PaletteColorAnalyzer());
+    }
+
+    @Test
+    public void sampled() {
+        measure(new SampledColorAnalyzer());
+    }
+
+    /**
+     * @param analyzer to measure on photo
+     */
+    private void measure(TextColorAnalyzer analyzer) {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            analyzer.getTextColor(mPhoto, mTextRegion);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.photoweather.benchmark;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Inputs shared by microbenchmarks, recorded OpenWeatherMap responses kept in test assets
+ * and photos generated with a fixed seed so every run measures same pixels
+ */
+final class Fixtures {
+
+    // recorded responses in assets/weather, clear sky with 1 description, rain with 3 descriptions
+    // and snow with non ascii city name
+    static final String[] WEATHER_FIXTURES = {"cairo_clear", "london_rain", "reykjavik_snow"};
+
+    // photo sizes of low resolution, full HD and 12 MP camera
+    static final int[][] PHOTO_SIZES = {{640, 480}, {1920, 1080}, {4032, 3024}};
+
+    // seed of photo noise so every run has same pixels
+    private static final long PHOTO_SEED = 42;
+    // size of blocks of same color so photo has areas like real scenes and not only noise
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * not to be instanced, only holds fixtures
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * @param name of fixture in assets/weather without extension
+     * @return response json exactly as recorded
+     */
+    static String readWeatherJson(String name) {
+        AssetManager assets = InstrumentationRegistry.getInstrumentation().getContext().getAssets();
+        try (InputStream input = assets.open("weather/" + name + ".json")) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1)
+                output.write(buffer, 0, read);
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read fixture " + name, e);
+        }
+    }
+
+    /**
+     * photo with sky like gradient on top half and blocks of random colors below it
+     * so text area and rest of photo differ like in real photos
+     *
+     * @param width  of photo
+     * @param height of photo
+     * @return mutable photo, caller recycles it
+     */
+    static Bitmap createPhoto(int width, int height) {
+        Random random = new Random(PHOTO_SEED);
+        int[] row = new int[width];
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < height; y++) {
+            if (y < height / 2) {
+                // gradient from dark to light blue
+                int shade = 255 * y / (height / 2);
+                for (int x = 0; x < width; x++)
+                    row[x] = 0xFF000000 | (shade / 2) << 16 | (shade * 3 / 4) << 8 | 255;
+            } else if (y % BLOCK_SIZE == 0) {
+                // new row of blocks, rows in between repeat it
+                for (int x = 0; x < width; x += BLOCK_SIZE) {
+                    int color = 0xFF000000 | random.nextInt(0x1000000);
+                    for (int i = x; i < Math.min(width, x + BLOCK_SIZE); i++)
+                        row[i] = color;
+                }
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+}
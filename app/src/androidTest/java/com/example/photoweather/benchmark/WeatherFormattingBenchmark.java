@@ -0,0 +1,108 @@
+package com.example.photoweather.benchmark;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.photoweather.WeatherFormatter;
+import com.example.photoweather.capture.WeatherOverlay;
+import com.example.photoweather.models.Weather;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures text shown for weather, formatting values for weather info screen, laying out
+ * weather text once per weather and drawing it on every photo
+ * <p>
+ * run with ./gradlew :app:connectedAndroidTest -PtestBuildType=benchmark on a physical device
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherFormattingBenchmark {
+
+    // full HD photo
+    private static final int PHOTO_WIDTH = 1920;
+    private static final int PHOTO_HEIGHT = 1080;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Resources mResources;
+    private WeatherFormatter mFormatter;
+    private Weather mWeather;
+    private String mWeatherJson;
+    private Bitmap mPhoto;
+
+    @Before
+    public void setUp() {
+        mResources = InstrumentationRegistry.getInstrumentation().getTargetContext().getResources();
+        mFormatter = new WeatherFormatter(mResources);
+        mWeatherJson = Fixtures.readWeatherJson("london_rain");
+        mWeather = new Gson().fromJson(mWeatherJson, Weather.class);
+        mPhoto = Fixtures.createPhoto(PHOTO_WIDTH, PHOTO_HEIGHT);
+    }
+
+    @After
+    public void tearDown() {
+        mPhoto.recycle();
+    }
+
+    /**
+     * values formatted by weather info screen on every weather
+     */
+    @Test
+    public void formatWeatherInfo() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mFormatter.formatPercentage(mWeather.getCloudiness());
+            mFormatter.formatWindSpeed(mWeather.getWindSpeed());
+            mFormatter.formatTemperature(mWeather.getTemperature());
+            mFormatter.formatTemperature(mWeather.getMin());
+            mFormatter.formatTemperature(mWeather.getMax());
+            mFormatter.formatTemperature(mWeather.getFeelsLike());
+            mFormatter.formatPercentage(mWeather.getHumidity());
+        }
+    }
+
+    /**
+     * with wind and humidity lines as longest text overlay can have
+     */
+    @Test
+    public void formatOverlay() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            mFormatter.formatOverlay(mWeather, true);
+    }
+
+    /**
+     * done once per weather when user picks it
+     */
+    @Test
+    public void layOutOverlay() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            new WeatherOverlay(mResources, mWeather, mWeatherJson);
+    }
+
+    /**
+     * done for every photo
+     */
+    @Test
+    public void drawOverlay() {
+        WeatherOverlay overlay = new WeatherOverlay(mResources, mWeather, mWeatherJson);
+        Canvas canvas = new Canvas(mPhoto);
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            overlay.draw(canvas, PHOTO_WIDTH, PHOTO_HEIGHT, Color.WHITE);
+    }
+}
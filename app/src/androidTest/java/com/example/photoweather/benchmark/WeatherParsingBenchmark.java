@@ -0,0 +1,82 @@
+package com.example.photoweather.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.example.photoweather.models.Weather;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures Gson reading weather responses into models and writing them back to json
+ * as done for every network response, cached weather and capture job
+ * <p>
+ * run with ./gradlew :app:connectedAndroidTest -PtestBuildType=benchmark on a physical device
+ */
+@RunWith(Parameterized.class)
+public class WeatherParsingBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final String mFixture;
+    private final Gson mGson = new Gson();
+    private String mJson;
+
+    /**
+     * @param fixture name of recorded response
+     */
+    public WeatherParsingBenchmark(String fixture) {
+        this.mFixture = fixture;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (String fixture : Fixtures.WEATHER_FIXTURES)
+            parameters.add(new Object[]{fixture});
+        return parameters;
+    }
+
+    @Before
+    public void setUp() {
+        mJson = Fixtures.readWeatherJson(mFixture);
+        // adapters are made on first use, they are made once per app so not measured
+        assertNotNull(mGson.fromJson(mJson, Weather.class).getCity());
+    }
+
+    @Test
+    public void fromJson() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            mGson.fromJson(mJson, Weather.class);
+    }
+
+    @Test
+    public void toJson() {
+        Weather weather = mGson.fromJson(mJson, Weather.class);
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            mGson.toJson(weather);
+    }
+
+    /**
+     * first parse of app uses a new Gson so it includes making type adapters by reflection
+     */
+    @Test
+    public void fromJson_newGson() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning())
+            new Gson().fromJson(mJson, Weather.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.photoweather;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.WeatherSnapshot;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Fills history with fake photos so benchmarks measure scrolling a large history
+ * <p>
+ * Only part of benchmark build, triggered by benchmark module from shell with
+ * am broadcast -a com.example.photoweather.SEED_HISTORY --ei count 5000
+ * <p>
+ * Every photo gets it's own small thumbnail so grid decodes thumbnails like it does for real photos,
+ * urls point to a collection gallery doesn't know so photos are never removed as missing
+ * <p>
+ * Photos get weather of a few cities, kinds of weather and a spread of temperatures so filters
+ * and search of history match a realistic part of it
+ */
+public class SeedHistoryReceiver extends BroadcastReceiver {
+
+    // extra holding number of photos history should have
+    private static final String EXTRA_COUNT = "count";
+    // photos seeded when no count is given
+    private static final int DEFAULT_COUNT = 5000;
+    // collection of fake photos, gallery can't answer for it so they are never reported missing
+    private static final String SEED_COLLECTION = "benchmark://photoweather/photos/";
+    // photos are spread 1 minute apart going back from now
+    private static final long PHOTO_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // cities photos are taken in, in turn
+    private static final String[] CITIES = {"Cairo", "London", "Reykjavik", "New York", "Tokyo"};
+    // weather of photos in turn, main then detailed description
+    private static final String[][] WEATHERS = {{"Clear", "clear sky"}, {"Rain", "light rain"},
+            {"Clouds", "scattered clouds"}, {"Snow", "light snow"}, {"Mist", "mist"}, {"Rain", "heavy rain"}};
+    // temperatures of photos go round this many °C starting from lowest
+    private static final int TEMPERATURE_SPREAD = 40;
+    private static final int LOWEST_TEMPERATURE = -10;
+
+    /**
+     * seed history on background thread as writing thumbnails and DB must not block main thread
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        int count = intent.getIntExtra(EXTRA_COUNT, DEFAULT_COUNT);
+        PendingResult result = goAsync();
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                seed(appContext, count);
+                result.setResultCode(count);
+            } finally {
+                result.finish();
+            }
+        }, "seed-history").start();
+    }
+
+    /**
+     * replace history with fake photos unless it already holds that many
+     * so repeated benchmark runs don't seed again
+     *
+     * @param context to open DB and app storage
+     * @param count   number of photos history should have
+     */
+    private static void seed(Context context, int count) {
+        PhotoDatabase photoDatabase = PhotoDatabase.getInstance(context);
+        PhotoDao photoDao = photoDatabase.photoDao();
+
+        List<Photo> existing = photoDao.getPhotosSnapshot();
+        if (existing.size() == count)
+            return;
+        for (Photo photo : existing)
+            ThumbnailGenerator.delete(photo.getThumbnailPath());
+        photoDatabase.clearAllTables();
+
+        ThumbnailGenerator thumbnailGenerator = new ThumbnailGenerator(context);
+        // full grid cell size so grid decodes as much as it does for real thumbnails
+        int size = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_size);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        long now = System.currentTimeMillis();
+
+        photoDatabase.runInTransaction(() -> {
+            for (int i = 0; i < count; i++) {
+                // different color for every photo so scrolling shows which rows changed
+                bitmap.eraseColor(Color.HSVToColor(new float[]{(i * 7) % 360, 0.6f, 0.9f}));
+                long takenAt = now - i * PHOTO_INTERVAL_MILLIS;
+                Photo photo = new Photo(SEED_COLLECTION + i, takenAt);
+                photo.setThumbnailPath(thumbnailGenerator.create(bitmap, "seed_" + i));
+                String city = CITIES[i % CITIES.length];
+                String[] weather = WEATHERS[i % WEATHERS.length];
+                photoDao.insert(photo, new WeatherSnapshot(0, WeatherCache.normalizeCity(city), city,
+                        weather[0], weather[1], LOWEST_TEMPERATURE + i % TEMPERATURE_SPREAD, 1.5, 0, 40,
+                        takenAt));
+            }
+        });
+        bitmap.recycle();
+    }
+}
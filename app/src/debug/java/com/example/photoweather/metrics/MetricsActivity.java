@@ -0,0 +1,55 @@
+package com.example.photoweather.metrics;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.photoweather.R;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Debug screen showing counters, latency percentiles and Picasso cache stats recorded
+ * by this process so far, only part of debug builds
+ * <p>
+ * Metrics live in memory of process so app has to be used before they show anything,
+ * in other builds same text is printed by dumpsys
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    // shows metrics dump
+    private TextView mMetricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        mMetricsTextView = findViewById(R.id.metrics_text);
+        findViewById(R.id.metrics_refresh_button).setOnClickListener(v -> showMetrics());
+    }
+
+    /**
+     * show latest metrics whenever screen is back in front
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    /**
+     * print metrics into text view
+     */
+    private void showMetrics() {
+        StringWriter text = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(text)) {
+            Metrics.getInstance().dump(writer);
+        }
+        mMetricsTextView.setText(text.toString());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.photoweather;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Decodes images from gallery at bounded size straight into a mutable bitmap
+ * <p>
+ * Dimensions are read first so image is decoded at reduced size if it is bigger than
+ * max size, and decode reuses a bitmap from pool when it has one big enough
+ * so editing photo needs at most 1 bitmap allocation
+ */
+public class BitmapDecoder {
+
+    /**
+     * not to be instantiated
+     */
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Decode image into mutable bitmap that can be drawn on directly
+     * must not be called from main thread
+     *
+     * @param resolver to read image with
+     * @param imageUri location of image in gallery
+     * @param maxSize  max width and height of decoded image in pixels
+     * @param pool     to reuse bitmaps from, give bitmap back to it once done
+     * @return mutable bitmap of image
+     * @throws IOException if image can't be read or decoded
+     */
+    public static Bitmap decodeMutable(ContentResolver resolver, Uri imageUri, int maxSize,
+                                       BitmapPool pool) throws IOException {
+        // first only read dimensions of image
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = resolver.openInputStream(imageUri)) {
+            BitmapFactory.decodeStream(input, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            throw new IOException("Can't read dimensions of " + imageUri);
+
+        // then decode at reduced size if needed into mutable bitmap reused from pool if possible
+        int sampleSize = sampleSize(options.outWidth, options.outHeight, maxSize);
+        int width = divideRoundingUp(options.outWidth, sampleSize);
+        int height = divideRoundingUp(options.outHeight, sampleSize);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = pool.get(width, height, Bitmap.Config.ARGB_8888);
+
+        Bitmap bitmap;
+        try {
+            bitmap = decode(resolver, imageUri, options);
+        } catch (IllegalArgumentException e) {
+            // decoder refused to reuse bitmap so give it back and decode into new one
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = decode(resolver, imageUri, options);
+        }
+
+        if (bitmap == null)
+            throw new IOException("Can't decode " + imageUri);
+        return bitmap;
+    }
+
+    /**
+     * @param width   of image
+     * @param height  of image
+     * @param maxSize max width and height of decoded image
+     * @return smallest power of 2 that makes both width and height fit in max size
+     */
+    static int sampleSize(int width, int height, int maxSize) {
+        int sampleSize = 1;
+        while (divideRoundingUp(width, sampleSize) > maxSize || divideRoundingUp(height, sampleSize) > maxSize)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+
+    /**
+     * @return value / divisor rounded up
+     */
+    private static int divideRoundingUp(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * @param resolver to read image with
+     * @param imageUri location of image
+     * @param options  of decode
+     * @return decoded bitmap or null if it couldn't be decoded
+     * @throws IOException if image can't be read
+     */
+    private static Bitmap decode(ContentResolver resolver, Uri imageUri,
+                                 BitmapFactory.Options options) throws IOException {
+        try (InputStream input = resolver.openInputStream(imageUri)) {
+            return BitmapFactory.decodeStream(input, null, options);
+        }
+    }
+}
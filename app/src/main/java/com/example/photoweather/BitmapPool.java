@@ -0,0 +1,146 @@
+package com.example.photoweather;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Bounded pool of mutable bitmaps that can be reused as decode buffers
+ * so decoding a photo doesn't allocate a new multi megabyte bitmap every time
+ * <p>
+ * Pool never holds more than its byte limit and is emptied when system is low on memory
+ */
+public class BitmapPool implements ComponentCallbacks2 {
+
+    // part of max heap pool is allowed to hold
+    private static final int HEAP_FRACTION = 4;
+
+    // single pool used throughout application
+    private static BitmapPool mInstance;
+
+    // bitmaps in pool, least recently added first
+    private final LinkedList<Bitmap> mBitmaps = new LinkedList<>();
+    // max total bytes of bitmaps in pool
+    private final long mMaxBytes;
+    // total bytes of bitmaps currently in pool
+    private long mCurrentBytes;
+
+    /**
+     * @param maxBytes max total bytes of bitmaps pool can hold
+     */
+    BitmapPool(long maxBytes) {
+        this.mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @param context to listen to memory pressure of application
+     * @return single instance of pool to be used the entire application
+     */
+    public static synchronized BitmapPool getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new BitmapPool(Runtime.getRuntime().maxMemory() / HEAP_FRACTION);
+            context.getApplicationContext().registerComponentCallbacks(mInstance);
+        }
+        return mInstance;
+    }
+
+    /**
+     * Take bitmap out of pool that is big enough to decode image of given size into
+     *
+     * @param width  of image to decode
+     * @param height of image to decode
+     * @param config of image to decode
+     * @return bitmap big enough or null if pool has none
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getConfig() == config && bitmap.getAllocationByteCount() >= needed) {
+                iterator.remove();
+                mCurrentBytes -= bitmap.getAllocationByteCount();
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Give bitmap back to pool once it is no longer used
+     * bitmap that can't be reused or doesn't fit is recycled
+     *
+     * @param bitmap no longer used by caller
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled())
+            return;
+        if (!bitmap.isMutable() || bitmap.getAllocationByteCount() > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        mBitmaps.addLast(bitmap);
+        mCurrentBytes += bitmap.getAllocationByteCount();
+        trimTo(mMaxBytes);
+    }
+
+    /**
+     * Recycle all bitmaps in pool
+     */
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    /**
+     * system is low on memory so give memory back
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL)
+            clear();
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    /**
+     * recycle least recently added bitmaps until pool holds at most given bytes
+     *
+     * @param maxBytes max total bytes to keep
+     */
+    private void trimTo(long maxBytes) {
+        while (mCurrentBytes > maxBytes && !mBitmaps.isEmpty()) {
+            Bitmap eldest = mBitmaps.removeFirst();
+            mCurrentBytes -= eldest.getAllocationByteCount();
+            eldest.recycle();
+        }
+    }
+
+    /**
+     * @param config of bitmap
+     * @return bytes every pixel takes in memory
+     */
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8)
+            return 1;
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444)
+            return 2;
+        return 4;
+    }
+}
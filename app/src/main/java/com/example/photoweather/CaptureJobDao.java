@@ -0,0 +1,67 @@
+package com.example.photoweather;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.photoweather.models.CaptureJob;
+
+import java.util.List;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Interface of DB to use Room to auto generate capture job operations
+ */
+@Dao
+public interface CaptureJobDao {
+
+    /**
+     * @param job to insert in DB replacing old job of same image
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(CaptureJob job);
+
+    /**
+     * @param imageUri location of photo job is for
+     * @return job or null if it finished or never existed
+     */
+    @Query("SELECT * FROM capture_job_table WHERE imageUri = :imageUri LIMIT 1")
+    CaptureJob getJob(String imageUri);
+
+    /**
+     * @return all jobs that didn't finish, oldest first
+     */
+    @Query("SELECT * FROM capture_job_table ORDER BY createdAt ASC")
+    List<CaptureJob> getUnfinishedJobs();
+
+    /**
+     * @param imageUri location of photo job is for
+     * @param state    stage job reached
+     */
+    @Query("UPDATE capture_job_table SET state = :state WHERE imageUri = :imageUri")
+    void updateState(String imageUri, String state);
+
+    /**
+     * @param imageUri  location of photo job is for
+     * @param resultUrl url of gallery entry photo is about to be stamped into
+     */
+    @Query("UPDATE capture_job_table SET state = '" + CaptureJob.STATE_STAMPING + "', resultUrl = :resultUrl"
+            + " WHERE imageUri = :imageUri")
+    void markStamping(String imageUri, String resultUrl);
+
+    /**
+     * @param imageUri  location of photo job is for
+     * @param resultUrl url of stored photo
+     */
+    @Query("UPDATE capture_job_table SET state = '" + CaptureJob.STATE_STAMPED + "', resultUrl = :resultUrl"
+            + " WHERE imageUri = :imageUri")
+    void markStamped(String imageUri, String resultUrl);
+
+    /**
+     * @param imageUri location of photo job is for
+     */
+    @Query("DELETE FROM capture_job_table WHERE imageUri = :imageUri")
+    void delete(String imageUri);
+}
@@ -0,0 +1,20 @@
+package com.example.photoweather;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Source of current time so time based logic (cache expiry, rate limiting) can be
+ * tested with a fake clock instead of real time
+ */
+public interface Clock {
+
+    /**
+     * Clock backed by system time to be used in the application
+     */
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return current time in milliseconds
+     */
+    long now();
+}
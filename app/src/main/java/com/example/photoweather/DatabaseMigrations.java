@@ -0,0 +1,155 @@
+package com.example.photoweather;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Migrations of DB from every version app ever shipped so history of users survives updates
+ * <p>
+ * Every migration only changes what it's version changed, SQL matches what Room generates
+ * for entities of that version so Room validates migrated schema as if DB was made fresh
+ */
+public class DatabaseMigrations {
+
+    // SQL turning time stamps like "20200401_153012" in local time into epoch milliseconds,
+    // time stamps that can't be read become 0 so photo is kept and sorted last
+    private static final String LEGACY_TIME_STAMP_TO_MILLIS =
+            "COALESCE(CAST(strftime('%s', substr(timeStamp, 1, 4) || '-' || substr(timeStamp, 5, 2)"
+                    + " || '-' || substr(timeStamp, 7, 2) || ' ' || substr(timeStamp, 10, 2)"
+                    + " || ':' || substr(timeStamp, 12, 2) || ':' || substr(timeStamp, 14, 2), 'utc')"
+                    + " AS INTEGER) * 1000, 0)";
+
+    /**
+     * weather cache table added
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_cache_table` (`cityKey` TEXT NOT NULL, "
+                    + "`json` TEXT, `fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`cityKey`))");
+        }
+    };
+
+    /**
+     * thumbnail path added to photos, old photos get thumbnails once they are shown
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `photo_table` ADD COLUMN `thumbnailPath` TEXT");
+        }
+    };
+
+    /**
+     * capture job table added
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `capture_job_table` (`imageUri` TEXT NOT NULL, "
+                    + "`fileName` TEXT, `timeStamp` TEXT, `weatherJson` TEXT, `state` TEXT, `resultUrl` TEXT, "
+                    + "`createdAt` INTEGER NOT NULL, PRIMARY KEY(`imageUri`))");
+        }
+    };
+
+    /**
+     * text time stamps of photos and capture jobs become epoch milliseconds, photos get index
+     * on time they were taken to be paged without sorting and unique index on url
+     * <p>
+     * SQLite can't change type of a column so both tables are made again, photos with same url
+     * are only kept once, capture jobs were made as camera opened so their creation time is
+     * time photo was taken and more precise than their time stamp
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `photo_table_new` (`id` INTEGER PRIMARY KEY "
+                    + "AUTOINCREMENT NOT NULL, `url` TEXT, `takenAt` INTEGER NOT NULL, `thumbnailPath` TEXT)");
+            // unique index first so duplicates are ignored while copying, it keeps it's name once
+            // table is renamed
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_photo_table_url` "
+                    + "ON `photo_table_new` (`url`)");
+            database.execSQL("INSERT OR IGNORE INTO `photo_table_new` (`id`, `url`, `takenAt`, `thumbnailPath`) "
+                    + "SELECT `id`, `url`, " + LEGACY_TIME_STAMP_TO_MILLIS + ", `thumbnailPath` "
+                    + "FROM `photo_table` ORDER BY `id`");
+            database.execSQL("DROP TABLE `photo_table`");
+            database.execSQL("ALTER TABLE `photo_table_new` RENAME TO `photo_table`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_photo_table_takenAt` "
+                    + "ON `photo_table` (`takenAt`)");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `capture_job_table_new` (`imageUri` TEXT NOT NULL, "
+                    + "`fileName` TEXT, `takenAt` INTEGER NOT NULL, `weatherJson` TEXT, `state` TEXT, "
+                    + "`resultUrl` TEXT, `createdAt` INTEGER NOT NULL, PRIMARY KEY(`imageUri`))");
+            database.execSQL("INSERT INTO `capture_job_table_new` (`imageUri`, `fileName`, `takenAt`, "
+                    + "`weatherJson`, `state`, `resultUrl`, `createdAt`) "
+                    + "SELECT `imageUri`, `fileName`, `createdAt`, `weatherJson`, "
+                    + "`state`, `resultUrl`, `createdAt` FROM `capture_job_table`");
+            database.execSQL("DROP TABLE `capture_job_table`");
+            database.execSQL("ALTER TABLE `capture_job_table_new` RENAME TO `capture_job_table`");
+        }
+    };
+
+    /**
+     * weather snapshot table added, photos stored before it have no weather as it only exists
+     * as pixels on them
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_snapshot_table` (`photoId` INTEGER NOT NULL, "
+                    + "`cityKey` TEXT, `city` TEXT, `description` TEXT, `temperature` REAL NOT NULL, "
+                    + "`windSpeed` REAL NOT NULL, `cloudiness` INTEGER NOT NULL, `humidity` INTEGER NOT NULL, "
+                    + "`takenAt` INTEGER NOT NULL, PRIMARY KEY(`photoId`), FOREIGN KEY(`photoId`) "
+                    + "REFERENCES `photo_table`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_weather_snapshot_table_cityKey_takenAt` "
+                    + "ON `weather_snapshot_table` (`cityKey`, `takenAt`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_weather_snapshot_table_temperature` "
+                    + "ON `weather_snapshot_table` (`temperature`)");
+        }
+    };
+
+    /**
+     * main description added to weather and full text index of weather added with triggers
+     * Room uses to keep it in sync, index is built from weather already stored
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `weather_snapshot_table` ADD COLUMN `main` TEXT");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `weather_search_table` USING FTS4("
+                    + "`city` TEXT, `main` TEXT, `description` TEXT, content=`weather_snapshot_table`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                    + "room_fts_content_sync_weather_search_table_BEFORE_UPDATE BEFORE UPDATE "
+                    + "ON `weather_snapshot_table` BEGIN DELETE FROM `weather_search_table` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                    + "room_fts_content_sync_weather_search_table_BEFORE_DELETE BEFORE DELETE "
+                    + "ON `weather_snapshot_table` BEGIN DELETE FROM `weather_search_table` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                    + "room_fts_content_sync_weather_search_table_AFTER_UPDATE AFTER UPDATE "
+                    + "ON `weather_snapshot_table` BEGIN INSERT INTO `weather_search_table`"
+                    + "(`docid`, `city`, `main`, `description`) "
+                    + "VALUES (NEW.`rowid`, NEW.`city`, NEW.`main`, NEW.`description`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                    + "room_fts_content_sync_weather_search_table_AFTER_INSERT AFTER INSERT "
+                    + "ON `weather_snapshot_table` BEGIN INSERT INTO `weather_search_table`"
+                    + "(`docid`, `city`, `main`, `description`) "
+                    + "VALUES (NEW.`rowid`, NEW.`city`, NEW.`main`, NEW.`description`); END");
+            database.execSQL("INSERT INTO `weather_search_table`(`weather_search_table`) VALUES('rebuild')");
+        }
+    };
+
+    // every migration in order, given to Room when DB is built
+    static final Migration[] ALL = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5,
+            MIGRATION_5_6, MIGRATION_6_7};
+
+    /**
+     * not to be instanced, only holds migrations
+     */
+    private DatabaseMigrations() {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.photoweather;
+
+import android.content.ContentResolver;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * How camera asked for image to be rotated or flipped when shown, read from EXIF orientation
+ * <p>
+ * BitmapFactory ignores EXIF so decoded pixels are in sensor orientation, this gives matrices
+ * to draw on them upright or to make upright copies of them
+ */
+public class ImageOrientation {
+
+    // image that doesn't need rotation
+    public static final ImageOrientation NORMAL = new ImageOrientation(0, false);
+
+    // degrees image is rotated clockwise when shown
+    private final int mRotationDegrees;
+    // true if image is mirrored when shown
+    private final boolean mFlipped;
+
+    /**
+     * @param rotationDegrees image is rotated clockwise when shown
+     * @param flipped         true if image is mirrored when shown
+     */
+    ImageOrientation(int rotationDegrees, boolean flipped) {
+        this.mRotationDegrees = rotationDegrees;
+        this.mFlipped = flipped;
+    }
+
+    /**
+     * Read orientation of image in gallery, must not be called from main thread
+     *
+     * @param resolver to read image with
+     * @param imageUri location of image
+     * @return orientation of image or {@link #NORMAL} if it has none or can't be read
+     */
+    public static ImageOrientation read(ContentResolver resolver, Uri imageUri) {
+        try (InputStream input = resolver.openInputStream(imageUri)) {
+            if (input == null)
+                return NORMAL;
+            // only header of image is read
+            ExifInterface exif = new ExifInterface(input);
+            int degrees = exif.getRotationDegrees();
+            boolean flipped = exif.isFlipped();
+            return degrees == 0 && !flipped ? NORMAL : new ImageOrientation(degrees, flipped);
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+            return NORMAL;
+        }
+    }
+
+    /**
+     * @return true if image is shown as it's decoded
+     */
+    public boolean isUpright() {
+        return mRotationDegrees == 0 && !mFlipped;
+    }
+
+    /**
+     * @return true if width and height of image swap when it's turned upright
+     */
+    public boolean isTransposed() {
+        return mRotationDegrees % 180 != 0;
+    }
+
+    /**
+     * @return matrix that turns decoded pixels upright, meant for Bitmap.createBitmap
+     * which moves result back to origin itself
+     */
+    public Matrix getRawToUpright() {
+        Matrix matrix = new Matrix();
+        matrix.setRotate(mRotationDegrees);
+        if (mFlipped)
+            matrix.postScale(-1, 1);
+        return matrix;
+    }
+
+    /**
+     * Matrix to draw on decoded pixels using upright coordinates so drawn text reads
+     * correctly once viewer applies EXIF orientation
+     *
+     * @param width  of decoded image
+     * @param height of decoded image
+     * @return matrix mapping upright coordinates to decoded pixel coordinates
+     */
+    public Matrix getUprightToRaw(int width, int height) {
+        Matrix toUpright = getRawToUpright();
+        // move upright image back to origin
+        float[] corners = {0, 0, width, 0, 0, height, width, height};
+        toUpright.mapPoints(corners);
+        float left = Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
+        float top = Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
+        toUpright.postTranslate(-left, -top);
+
+        Matrix toRaw = new Matrix();
+        toUpright.invert(toRaw);
+        return toRaw;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.photoweather;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Background lanes so different kinds of I/O never wait behind each other
+ * <p>
+ * DB lane runs fast Room reads and writes and media lane runs slow gallery operations
+ * so a burst of captures is never stuck behind a slow gallery delete
+ * <p>
+ * Capture lane processes taken photos (decode, draw weather, encode, store)
+ * <p>
+ * Using Singleton Pattern so lanes are shared by whole application
+ */
+public class IoExecutors {
+
+    // Room serializes writes anyway so 1 thread is enough
+    private static final int DB_THREADS = 1;
+    // max DB tasks waiting at same time
+    private static final int DB_CAPACITY = 64;
+    // DB tasks kept for what user is waiting for
+    private static final int DB_HIGH_RESERVED = 16;
+    // gallery operations are slow but independent so run a couple at once
+    private static final int MEDIA_THREADS = 2;
+    // max gallery tasks waiting at same time
+    private static final int MEDIA_CAPACITY = 32;
+    // gallery tasks kept for deletes user asked for, thumbnails and scans can't take them
+    private static final int MEDIA_HIGH_RESERVED = 8;
+    // processing a photo holds a full size bitmap so only 1 is processed at a time
+    private static final int CAPTURE_THREADS = 1;
+    // max photos waiting to be processed at same time, waiting photos only hold their uri
+    // so a burst of photos can queue up while camera is open
+    private static final int CAPTURE_CAPACITY = 32;
+    // photos user just took are never turned away by overlays laid out ahead
+    private static final int CAPTURE_HIGH_RESERVED = 8;
+
+    // single instance shared by whole application
+    private static IoExecutors mInstance;
+
+    // lane of DB operations
+    private final IoLane mDb = new IoLane("db", DB_THREADS, DB_CAPACITY, DB_HIGH_RESERVED);
+    // lane of gallery (MediaStore) operations
+    private final IoLane mMedia = new IoLane("media", MEDIA_THREADS, MEDIA_CAPACITY, MEDIA_HIGH_RESERVED);
+    // lane of processing taken photos
+    private final IoLane mCapture = new IoLane("capture", CAPTURE_THREADS, CAPTURE_CAPACITY, CAPTURE_HIGH_RESERVED);
+
+    /**
+     * private constructor to not allow anyone to instance new lanes
+     */
+    private IoExecutors() {
+    }
+
+    /**
+     * @return single instance of lanes to be used the entire application
+     */
+    public static synchronized IoExecutors getInstance() {
+        if (mInstance == null) {
+            mInstance = new IoExecutors();
+        }
+        return mInstance;
+    }
+
+    /**
+     * @return lane of DB operations
+     */
+    public IoLane db() {
+        return mDb;
+    }
+
+    /**
+     * @return lane of gallery (MediaStore) operations
+     */
+    public IoLane media() {
+        return mMedia;
+    }
+
+    /**
+     * @return lane of processing taken photos
+     */
+    public IoLane capture() {
+        return mCapture;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.photoweather;
+
+import android.os.Process;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Bounded and prioritized executor that runs 1 kind of background work
+ * <p>
+ * High priority tasks run before low priority ones and a full lane rejects new tasks
+ * by failing their future instead of growing forever or blocking the caller
+ * <p>
+ * Part of capacity is kept for high priority tasks so what user is waiting for is never
+ * turned away because background work filled the lane
+ */
+public class IoLane {
+
+    /**
+     * priority of task, high priority tasks run before low priority ones
+     */
+    public enum Priority {
+        HIGH,
+        LOW
+    }
+
+    // name of lane used to name its threads
+    private final String mName;
+    // runs tasks ordered by priority
+    private final ThreadPoolExecutor mExecutor;
+    // limits number of tasks queued or running in lane
+    private final Semaphore mPermits;
+    // limits number of low priority tasks so rest of capacity is kept for high priority ones
+    private final Semaphore mLowPermits;
+    // incremented with every submitted task to keep order of submission
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * @param name         of lane used to name its threads
+     * @param threads      number of threads running tasks of lane
+     * @param capacity     max number of tasks queued or running at same time
+     * @param highReserved part of capacity only high priority tasks can use
+     */
+    public IoLane(String name, int threads, int capacity, int highReserved) {
+        this(name, threads, capacity, highReserved, backgroundThreads(name));
+    }
+
+    /**
+     * @param name          of lane used in rejection message
+     * @param threads       number of threads running tasks of lane
+     * @param capacity      max number of tasks queued or running at same time
+     * @param highReserved  part of capacity only high priority tasks can use
+     * @param threadFactory makes threads of lane
+     */
+    IoLane(String name, int threads, int capacity, int highReserved, ThreadFactory threadFactory) {
+        this.mName = name;
+        this.mPermits = new Semaphore(capacity);
+        this.mLowPermits = new Semaphore(capacity - highReserved);
+        this.mExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * @param name of lane used to name its threads
+     * @return factory of lane threads that never compete with UI thread
+     */
+    private static ThreadFactory backgroundThreads(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, name + "-" + threadNumber.incrementAndGet());
+    }
+
+    /**
+     * rejection is known as soon as task is submitted so callers on main thread can tell
+     * user at once without waiting for future
+     *
+     * @param future returned by {@link #submit}
+     * @return true if lane was full and task was never run
+     */
+    public static boolean isRejected(Future<?> future) {
+        if (!future.isDone() || future.isCancelled())
+            return false;
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof RejectedExecutionException;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param priority of task
+     * @param task     to run in background
+     * @param <T>      type of task result
+     * @return future of task result, failed with {@link RejectedExecutionException} if lane is full
+     */
+    public <T> Future<T> submit(Priority priority, Callable<T> task) {
+        LaneTask<T> laneTask = new LaneTask<>(priority, mSequence.getAndIncrement(), task);
+
+        // low priority tasks can't take capacity kept for high priority ones
+        boolean low = priority == Priority.LOW;
+        if (low && !mLowPermits.tryAcquire()) {
+            laneTask.reject(new RejectedExecutionException(mName + " lane is full of low priority tasks"));
+            return laneTask;
+        }
+
+        // lane is full so push back on caller by failing task
+        if (!mPermits.tryAcquire()) {
+            if (low)
+                mLowPermits.release();
+            laneTask.reject(new RejectedExecutionException(mName + " lane is full"));
+            return laneTask;
+        }
+
+        laneTask.mHoldsPermit = true;
+        mExecutor.execute(laneTask);
+        return laneTask;
+    }
+
+    /**
+     * @param priority of task
+     * @param task     to run in background
+     * @return future that completes once task is done
+     */
+    public Future<?> submit(Priority priority, Runnable task) {
+        return submit(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return number of tasks queued or running in lane
+     */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size() + mExecutor.getActiveCount();
+    }
+
+    /**
+     * Task of lane ordered by priority then by order of submission
+     *
+     * @param <T> type of task result
+     */
+    private class LaneTask<T> extends FutureTask<T> implements Comparable<LaneTask<?>> {
+
+        // priority of task
+        private final Priority mPriority;
+        // order in which task was submitted
+        private final long mSequence;
+        // true if task took a permit of lane that must be given back once done
+        private boolean mHoldsPermit;
+
+        /**
+         * @param priority of task
+         * @param sequence order in which task was submitted
+         * @param task     to run in background
+         */
+        private LaneTask(Priority priority, long sequence, Callable<T> task) {
+            super(task);
+            this.mPriority = priority;
+            this.mSequence = sequence;
+        }
+
+        /**
+         * fail task without running it
+         *
+         * @param e reason task was not run
+         */
+        private void reject(RejectedExecutionException e) {
+            setException(e);
+        }
+
+        /**
+         * cancelled tasks leave queue at once so they don't hold a place in lane
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                mExecutor.remove(this);
+            return cancelled;
+        }
+
+        /**
+         * give back permits once task is done, failed or cancelled
+         */
+        @Override
+        protected void done() {
+            if (!mHoldsPermit)
+                return;
+            mPermits.release();
+            if (mPriority == Priority.LOW)
+                mLowPermits.release();
+        }
+
+        @Override
+        public int compareTo(LaneTask<?> other) {
+            int byPriority = mPriority.compareTo(other.mPriority);
+            if (byPriority != 0)
+                return byPriority;
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
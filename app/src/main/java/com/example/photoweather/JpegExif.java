@@ -0,0 +1,290 @@
+package com.example.photoweather;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Copies EXIF block of a JPEG into another JPEG without decoding or rewriting either image
+ * <p>
+ * Bitmap.compress writes no EXIF, so stamping photo in place would lose orientation, date and
+ * camera info. Copying raw APP1 segment keeps all of it and costs no extra write of image
+ * <p>
+ * Only tags that describe pixels are touched: image size tags are set to size of new image and
+ * embedded thumbnail is dropped as it still shows photo without weather
+ */
+public final class JpegExif {
+
+    // start of image marker
+    private static final int SOI = 0xD8;
+    // application segment that holds JFIF, written by Bitmap.compress
+    private static final int APP0 = 0xE0;
+    // start of scan marker, image data follows it so no more metadata segments
+    private static final int SOS = 0xDA;
+    // end of image marker
+    private static final int EOI = 0xD9;
+    // application segment that holds EXIF
+    private static final int APP1 = 0xE1;
+    // EXIF segment payload starts with these bytes
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+    // TIFF structure holding tags starts after marker, length and EXIF header
+    private static final int TIFF_START = 4 + 6;
+
+    // tags of image size in main IFD
+    private static final int TAG_IMAGE_WIDTH = 0x0100;
+    private static final int TAG_IMAGE_LENGTH = 0x0101;
+    // tags pointing to sub IFDs
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_GPS_IFD = 0x8825;
+    private static final int TAG_INTEROP_IFD = 0xA005;
+    // tags of image size in EXIF IFD
+    private static final int TAG_PIXEL_X_DIMENSION = 0xA002;
+    private static final int TAG_PIXEL_Y_DIMENSION = 0xA003;
+    // tag of where embedded JPEG thumbnail starts in thumbnail IFD
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+
+    // TIFF value types that are set and size in bytes of every TIFF value type by type number
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int[] TYPE_SIZES = {0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8};
+
+    /**
+     * not to be instantiated
+     */
+    private JpegExif() {
+    }
+
+    /**
+     * Read EXIF segment of JPEG, only header of image is read
+     *
+     * @param input JPEG image
+     * @return whole APP1 segment including marker and length or null if image has no EXIF
+     * or isn't JPEG
+     * @throws IOException if image can't be read
+     */
+    public static byte[] readExifSegment(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        try {
+            if (data.readUnsignedByte() != 0xFF || data.readUnsignedByte() != SOI)
+                return null;
+
+            while (true) {
+                if (data.readUnsignedByte() != 0xFF)
+                    return null;
+                int marker = data.readUnsignedByte();
+                // skip fill bytes
+                while (marker == 0xFF)
+                    marker = data.readUnsignedByte();
+                if (marker == SOS || marker == EOI)
+                    return null;
+
+                int length = data.readUnsignedShort();
+                if (length < 2)
+                    return null;
+                byte[] payload = new byte[length - 2];
+                data.readFully(payload);
+
+                if (marker == APP1 && startsWith(payload, EXIF_HEADER)) {
+                    byte[] segment = new byte[length + 2];
+                    segment[0] = (byte) 0xFF;
+                    segment[1] = (byte) APP1;
+                    segment[2] = (byte) (length >> 8);
+                    segment[3] = (byte) length;
+                    System.arraycopy(payload, 0, segment, 4, payload.length);
+                    return segment;
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Make EXIF segment describe new image stamped over old one
+     * <p>
+     * image size tags are set to new size and embedded thumbnail is dropped, it's bytes are cut off
+     * when they are at end of segment as cameras write them and else only unlinked
+     *
+     * @param segment from {@link #readExifSegment(InputStream)}
+     * @param width   of new image in pixels
+     * @param height  of new image in pixels
+     * @return new segment, segment is not changed, or segment itself if it can't be parsed
+     */
+    public static byte[] rewriteExifSegment(byte[] segment, int width, int height) {
+        if (segment.length < TIFF_START + 8)
+            return segment;
+
+        byte[] copy = segment.clone();
+        try {
+            ByteBuffer tiff = ByteBuffer.wrap(copy, TIFF_START, copy.length - TIFF_START).slice();
+            if (copy[TIFF_START] == 'I' && copy[TIFF_START + 1] == 'I')
+                tiff.order(ByteOrder.LITTLE_ENDIAN);
+            else if (copy[TIFF_START] == 'M' && copy[TIFF_START + 1] == 'M')
+                tiff.order(ByteOrder.BIG_ENDIAN);
+            else
+                return segment;
+
+            // end of everything tags other than thumbnail point at
+            int[] end = {8};
+
+            int ifd0 = tiff.getInt(4);
+            int exifIfd = rewriteIfd(tiff, ifd0, TAG_IMAGE_WIDTH, TAG_IMAGE_LENGTH, width, height, end);
+            int gpsIfd = findPointer(tiff, ifd0, TAG_GPS_IFD);
+            if (exifIfd > 0) {
+                rewriteIfd(tiff, exifIfd, TAG_PIXEL_X_DIMENSION, TAG_PIXEL_Y_DIMENSION, width, height, end);
+                int interopIfd = findPointer(tiff, exifIfd, TAG_INTEROP_IFD);
+                if (interopIfd > 0)
+                    rewriteIfd(tiff, interopIfd, -1, -1, 0, 0, end);
+            }
+            if (gpsIfd > 0)
+                rewriteIfd(tiff, gpsIfd, -1, -1, 0, 0, end);
+
+            // unlink thumbnail IFD that follows main IFD
+            int nextIfdPosition = ifd0 + 2 + 12 * (tiff.getShort(ifd0) & 0xFFFF);
+            int ifd1 = tiff.getInt(nextIfdPosition);
+            if (ifd1 <= 0)
+                return copy;
+            tiff.putInt(nextIfdPosition, 0);
+
+            // cut off thumbnail if nothing else is stored after it
+            int thumbnailStart = ifd1;
+            int thumbnailData = findPointer(tiff, ifd1, TAG_THUMBNAIL_OFFSET);
+            if (thumbnailData > 0)
+                thumbnailStart = Math.min(thumbnailStart, thumbnailData);
+            if (thumbnailStart < end[0] || thumbnailStart >= tiff.limit())
+                return copy;
+
+            int length = TIFF_START + thumbnailStart;
+            byte[] trimmed = new byte[length];
+            System.arraycopy(copy, 0, trimmed, 0, length);
+            trimmed[2] = (byte) ((length - 2) >> 8);
+            trimmed[3] = (byte) (length - 2);
+            return trimmed;
+        } catch (IndexOutOfBoundsException e) {
+            // broken offsets so keep EXIF as camera wrote it
+            return segment;
+        }
+    }
+
+    /**
+     * Set 2 size tags of IFD and find where it and values it points to end
+     *
+     * @param tiff      TIFF structure of EXIF segment
+     * @param ifd       offset of IFD in TIFF structure
+     * @param widthTag  tag to set to width or -1 for none
+     * @param heightTag tag to set to height or -1 for none
+     * @param width     of new image
+     * @param height    of new image
+     * @param end       end of data found so far, moved past IFD and it's values
+     * @return offset of EXIF IFD if IFD points to one else 0
+     */
+    private static int rewriteIfd(ByteBuffer tiff, int ifd, int widthTag, int heightTag,
+                                  int width, int height, int[] end) {
+        int count = tiff.getShort(ifd) & 0xFFFF;
+        end[0] = Math.max(end[0], ifd + 2 + 12 * count + 4);
+        int exifIfd = 0;
+
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + 12 * i;
+            int tag = tiff.getShort(entry) & 0xFFFF;
+            int type = tiff.getShort(entry + 2) & 0xFFFF;
+            int values = tiff.getInt(entry + 4);
+
+            if (tag == widthTag || tag == heightTag) {
+                setSize(tiff, entry, type, values, tag == widthTag ? width : height);
+            } else if (tag == TAG_EXIF_IFD) {
+                exifIfd = tiff.getInt(entry + 8);
+            }
+
+            // values that don't fit in entry are stored elsewhere
+            long size = type < TYPE_SIZES.length ? (long) TYPE_SIZES[type] * (values & 0xFFFFFFFFL) : 0;
+            if (size > 4)
+                end[0] = (int) Math.max(end[0], (tiff.getInt(entry + 8) & 0xFFFFFFFFL) + size);
+        }
+        return exifIfd;
+    }
+
+    /**
+     * @param tiff  TIFF structure of EXIF segment
+     * @param entry offset of IFD entry of size tag
+     * @param type  type of value of tag
+     * @param count number of values of tag
+     * @param size  new value in pixels
+     */
+    private static void setSize(ByteBuffer tiff, int entry, int type, int count, int size) {
+        if (count != 1 || (type != TYPE_SHORT && type != TYPE_LONG))
+            return;
+        // clear whole value so no byte of old value is left behind when type changes
+        tiff.putInt(entry + 8, 0);
+        if (size <= 0xFFFF && type == TYPE_SHORT) {
+            tiff.putShort(entry + 8, (short) size);
+        } else {
+            tiff.putShort(entry + 2, (short) TYPE_LONG);
+            tiff.putInt(entry + 8, size);
+        }
+    }
+
+    /**
+     * @param tiff TIFF structure of EXIF segment
+     * @param ifd  offset of IFD in TIFF structure
+     * @param tag  holding offset
+     * @return offset tag holds or 0 if IFD has no such tag
+     */
+    private static int findPointer(ByteBuffer tiff, int ifd, int tag) {
+        int count = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int entry = ifd + 2 + 12 * i;
+            if ((tiff.getShort(entry) & 0xFFFF) == tag)
+                return tiff.getInt(entry + 8);
+        }
+        return 0;
+    }
+
+    /**
+     * Write JPEG with EXIF segment placed right after start of image marker, or after JFIF segment
+     * if image starts with one as JFIF has to come first
+     *
+     * @param jpeg        image written by Bitmap.compress
+     * @param exifSegment segment from {@link #readExifSegment(InputStream)} or null to write
+     *                    image as it is
+     * @param output      to write image to
+     * @throws IOException if image can't be written or isn't JPEG
+     */
+    public static void write(byte[] jpeg, byte[] exifSegment, OutputStream output) throws IOException {
+        if (jpeg.length < 2 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != SOI)
+            throw new IOException("Not a JPEG image");
+
+        if (exifSegment == null) {
+            output.write(jpeg);
+            return;
+        }
+        int position = 2;
+        if (jpeg.length >= 6 && (jpeg[2] & 0xFF) == 0xFF && (jpeg[3] & 0xFF) == APP0) {
+            int app0End = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+            if (app0End <= jpeg.length)
+                position = app0End;
+        }
+        output.write(jpeg, 0, position);
+        output.write(exifSegment);
+        output.write(jpeg, position, jpeg.length - position);
+    }
+
+    /**
+     * @return true if data starts with prefix
+     */
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length)
+            return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -2,13 +2,14 @@ package com.example.photoweather;
 
 import android.content.ContentValues;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
 import android.net.Uri;
 import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
 
+import com.example.photoweather.capture.CaptureProgress;
+import com.example.photoweather.capture.CaptureViewModel;
+import com.example.photoweather.metrics.Metrics;
 import com.example.photoweather.models.Photo;
 import com.example.photoweather.models.Weather;
 import com.example.photoweather.ui.main.fragments.history.HistoryViewModel;
@@ -16,11 +17,13 @@ import com.example.photoweather.ui.main.fragments.weatherinfo.WeatherInfoViewMod
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.tabs.TabLayout;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
-import androidx.palette.graphics.Palette;
+import androidx.paging.PagedList;
 import androidx.viewpager.widget.ViewPager;
 import androidx.appcompat.app.AppCompatActivity;
 
@@ -29,8 +32,12 @@ import android.widget.Toast;
 
 import com.example.photoweather.ui.main.fragments.SectionsPagerAdapter;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -44,17 +51,15 @@ public class MainActivity extends AppCompatActivity {
     private static final int IMAGE_CAPTURE_CODE = 1001;
     // image description
     private static final String IMAGE_DESCRIPTION = "PhotoWeather";
-    // image file name to be stored into gallery
-    private String mImageFileName;
-    // image file Uri that holds location of image
-    private Uri mImageFileUri;
-    // time stamp used in image name to make it unique
-    private String mImageTimeStamp;
     // Current weather that user selected
     private LiveData<Weather> mCurrentWeather;
 
     // view model to hold history of images
     private HistoryViewModel mHistoryViewModel;
+    // view model that holds photo being taken and processes it in background
+    private CaptureViewModel mCaptureViewModel;
+    // shows progress of photo being processed
+    private ProgressBar mCaptureProgressBar;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -77,55 +82,123 @@ public class MainActivity extends AppCompatActivity {
 
         // get history view model
         mHistoryViewModel = ViewModelProviders.of(this).get(HistoryViewModel.class);
+        // tell user if history couldn't be deleted so it can be tried again
+        mHistoryViewModel.getDeleteFailed().observe(this, failed -> {
+            if (!failed)
+                return;
+            Toast.makeText(this, getString(R.string.delete_failed), Toast.LENGTH_SHORT).show();
+            mHistoryViewModel.onDeleteFailureShown();
+        });
+        // history is filled once DB opened in background, report it so startup
+        // benchmarks measure time until content is shown and not only first frame
+        mHistoryViewModel.getPhotos().observe(this, new Observer<PagedList<Photo>>() {
+            @Override
+            public void onChanged(PagedList<Photo> photos) {
+                mHistoryViewModel.getPhotos().removeObserver(this);
+                reportFullyDrawn();
+            }
+        });
 
         // get weather info view model to track weather info
         WeatherInfoViewModel weatherInfoViewModel = ViewModelProviders.of(this).get(WeatherInfoViewModel.class);
         mCurrentWeather = weatherInfoViewModel.getWeather();
 
+        // get capture view model that survives configuration changes and restore photo being
+        // taken in case process was killed while camera was open
+        mCaptureViewModel = ViewModelProviders.of(this).get(CaptureViewModel.class);
+        mCaptureViewModel.restoreState(savedInstanceState);
+
+        // track progress of photos being processed in background and their results
+        mCaptureProgressBar = findViewById(R.id.capture_progress);
+        mCaptureProgressBar.setMax(CaptureProgress.Stage.SHARE.ordinal());
+        mCaptureViewModel.getPendingJobs().observe(this, this::updateCaptureProgress);
+        mCaptureViewModel.getResults().observe(this, this::onCaptureResults);
+
+        // lay out weather text drawn on photos once weather is picked instead of on every capture
+        mCurrentWeather.observe(this, mCaptureViewModel::prepareOverlay);
+
         // once floating action button is pressed check to take photo or not
         fab.setOnClickListener(view -> takePhoto());
+        // long press switches burst mode where camera opens again after every photo
+        fab.setOnLongClickListener(view -> {
+            boolean burstMode = mCaptureViewModel.toggleBurstMode();
+            Toast.makeText(this, getString(burstMode ? R.string.burst_mode_on : R.string.burst_mode_off),
+                    Toast.LENGTH_SHORT).show();
+            return true;
+        });
+    }
+
+    /**
+     * print metrics of app with
+     * adb shell dumpsys activity com.example.photoweather/.MainActivity
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer,
+                     @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Metrics:");
+        Metrics.getInstance().dump(writer);
+    }
+
+    /**
+     * save photo being taken in case activity is destroyed while camera is open
+     */
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        mCaptureViewModel.saveState(outState);
     }
 
     /**
      * check if there is valid weather info first
      * if no info available then tell user to pick city first
      * if info available then dispatch intent to take photo
+     *
+     * @return true if camera was opened
      */
-    private void takePhoto() {
+    private boolean takePhoto() {
 
         if (mCurrentWeather.getValue() == null) {
             Toast.makeText(this, getString(R.string.pick_city), Toast.LENGTH_SHORT).show();
-            return;
+            return false;
         }
 
-        dispatchTakePictureIntent();
+        return dispatchTakePictureIntent();
     }
 
 
     /**
      * make intent to take picture and start it to get result back
+     *
+     * @return true if camera was opened
      */
-    private void dispatchTakePictureIntent() {
+    private boolean dispatchTakePictureIntent() {
         // get content values to store info in it
         ContentValues contentValues = new ContentValues();
         // Create an image file name unique by using time stamp
-        mImageTimeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
-        mImageFileName = "JPEG_" + mImageTimeStamp + "_";
+        long takenAt = System.currentTimeMillis();
+        String imageTimeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date(takenAt));
+        String imageFileName = "JPEG_" + imageTimeStamp + "_";
 
         // put image file name and description
-        contentValues.put(MediaStore.Images.Media.TITLE, mImageFileName);
+        contentValues.put(MediaStore.Images.Media.TITLE, imageFileName);
         contentValues.put(MediaStore.Images.Media.DESCRIPTION, IMAGE_DESCRIPTION);
         // make uri of image to store image in when camera takes picture
         try {
-            mImageFileUri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues);
+            Uri imageFileUri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues);
+            // remember photo being taken along with weather at time it was taken
+            mCaptureViewModel.setPendingCapture(imageFileUri, imageFileName, takenAt,
+                    mCurrentWeather.getValue());
             // make new intent to take picture and put file to store photo in
             Intent cameraIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
-            cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, mImageFileUri);
+            cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, imageFileUri);
             startActivityForResult(cameraIntent, IMAGE_CAPTURE_CODE);
+            return true;
         } catch (Exception e) {
             // if failed to create image file
             Toast.makeText(this, getString(R.string.cant_create_image), Toast.LENGTH_SHORT).show();
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -140,180 +213,90 @@ public class MainActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
 
-        // if image code and result is ok then edit image, store it and share it
-        if (requestCode == IMAGE_CAPTURE_CODE && resultCode == RESULT_OK) {
-            // edit image
-            Bitmap imageEdited = editImage(mImageFileUri);
-            // insert new image in gallery and local DB
-            String imageUrl = storeImage(imageEdited);
-            // share image with Facebook or Twitter or any medium
-            shareImage(imageUrl);
+        if (requestCode != IMAGE_CAPTURE_CODE)
+            return;
+
+        // if result is ok then queue image to be edited and stored in background
+        if (resultCode == RESULT_OK) {
+            if (!mCaptureViewModel.processPendingCapture())
+                Toast.makeText(this, getString(R.string.cant_create_image), Toast.LENGTH_SHORT).show();
+            // in burst mode take next photo right away while this one is processed
+            else if (mCaptureViewModel.isBurstMode() && !takePhoto())
+                mCaptureViewModel.endBurst();
         } else {
             // else clean up resources by deleting image file where image was gonna be stored
-            try {
-                getContentResolver().delete(mImageFileUri, null, null);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            mCaptureViewModel.discardPendingCapture();
         }
     }
 
     /**
-     * Edit image here and store it
+     * Update UI with progress of photos being processed
      *
-     * @param imageUri location of image in Uri to get it and use it in editing
+     * @param pendingJobs photos still being processed, oldest first
      */
-    private Bitmap editImage(Uri imageUri) {
-
-        // initialize result image
-        Bitmap result = null;
-
-        try {
-            // get source image
-            Bitmap src = MediaStore.Images.Media.getBitmap(this.getContentResolver(), imageUri);
-
-            // set result on source
-            result = Bitmap.createBitmap(src.getWidth(), src.getHeight(), src.getConfig());
-
-            // make canvas on result to edit it
-            Canvas canvas = new Canvas(result);
-            // draw source image on canvas first
-            canvas.drawBitmap(src, 0, 0, null);
-            // make paint to draw on image
-            Paint paint = new Paint();
-
-            // get dominant color in image
-            int dominantColor = getDominantColor(result);
-            // then reverse it to get visible color text on image
-            int dominantColorReversed = reverseColor(dominantColor);
-
-            // set color of text to use reverse of dominant color
-            paint.setColor(dominantColorReversed);
-
-            // set alpha of text and text size
-            paint.setAlpha(255);
-            paint.setTextSize(getResources().getInteger(R.integer.text_size));
-            // activate anti alias for better quality
-            paint.setAntiAlias(true);
-            // don't underline text
-            paint.setUnderlineText(false);
-
-            // draw text on screen in 3 lines
-            // first line is city
-            canvas.drawText(mCurrentWeather.getValue().getCity(), 50, 50, paint);
-            // second line is description of weather
-            canvas.drawText(mCurrentWeather.getValue().getDescription(), 50, 150, paint);
-            // third line is temperature of weather
-            canvas.drawText(getString(R.string.temperature_format,
-                    String.format(Locale.US, "%.2f",
-                            mCurrentWeather.getValue().getTemperature())),
-                    50, 250, paint);
-
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void updateCaptureProgress(List<CaptureProgress> pendingJobs) {
+        // show progress bar only while photos are processed, with stage of oldest photo
+        if (pendingJobs == null || pendingJobs.isEmpty()) {
+            mCaptureProgressBar.setVisibility(View.GONE);
+            return;
         }
-
-        // return result image
-        return result;
+        mCaptureProgressBar.setVisibility(View.VISIBLE);
+        mCaptureProgressBar.setProgress(pendingJobs.get(0).getStage().ordinal());
     }
 
     /**
-     * Store image and remove old 1
+     * Share photos once they are stored and tell user if any failed
+     * <p>
+     * results of a burst only come once burst ends so photos of whole burst are shared together
      *
-     * @param result image to store
-     * @return url of location of new image stored
+     * @param results photos stored or failed that weren't handled yet, oldest first
      */
-    private String storeImage(Bitmap result) {
-
-        // delete old image first
-        try {
-            getContentResolver().delete(mImageFileUri, null, null);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        // if result image had problem and is null then return
-        if (result == null) {
-            return null;
-        }
-
-        // store result image in gallery and get it's url
-        String url = null;
-        try {
-            url = MediaStore.Images.Media.insertImage(getContentResolver(),
-                    result, mImageFileName, IMAGE_DESCRIPTION);
-
-            // create photo object
-            Photo photo = new Photo(url, mImageTimeStamp);
+    private void onCaptureResults(List<CaptureProgress> results) {
+        if (results == null || results.isEmpty())
+            return;
 
-            // store it in local DB
-            mHistoryViewModel.insert(photo);
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, getString(R.string.cant_create_image), Toast.LENGTH_SHORT).show();
+        ArrayList<Uri> stored = new ArrayList<>();
+        boolean failed = false;
+        for (CaptureProgress result : results) {
+            if (result.getStage() == CaptureProgress.Stage.SHARE && result.getImageUrl() != null)
+                stored.add(Uri.parse(result.getImageUrl()));
+            else
+                failed = true;
         }
+        // handled before share sheet opens so results are not handled again when activity is back
+        mCaptureViewModel.onResultsHandled(results);
 
-        // location of new image
-        return url;
+        if (failed)
+            Toast.makeText(this, getString(R.string.error_image), Toast.LENGTH_SHORT).show();
+        // share images with Facebook or Twitter or any medium
+        if (!stored.isEmpty())
+            shareImages(stored);
     }
 
-
     /**
-     * share image with Facebook or twitter
+     * share images with Facebook or twitter
      *
-     * @param path image file name with extension
+     * @param imageUris locations of images in gallery
      */
-    private void shareImage(String path) {
-        // there was problem storing image so don't share anything
-        if (path == null) {
-            Toast.makeText(this, getString(R.string.error_image), Toast.LENGTH_SHORT).show();
-            return;
+    private void shareImages(ArrayList<Uri> imageUris) {
+        Intent sharingIntent;
+        if (imageUris.size() == 1) {
+            // set intent to share image
+            Uri imageUri = imageUris.get(0);
+            sharingIntent = new Intent(Intent.ACTION_SEND);
+            // tell type of image and put image data in intent
+            String type = getContentResolver().getType(imageUri);
+            sharingIntent.setType(type != null ? type : "image/*");
+            sharingIntent.putExtra(Intent.EXTRA_STREAM, imageUri);
+        } else {
+            // photos of a burst are shared together
+            sharingIntent = new Intent(Intent.ACTION_SEND_MULTIPLE);
+            sharingIntent.setType("image/*");
+            sharingIntent.putParcelableArrayListExtra(Intent.EXTRA_STREAM, imageUris);
         }
-
-        // set intent to share image
-        Intent sharingIntent = new Intent(Intent.ACTION_SEND);
-        // make Uri of image path
-        Uri screenshotUri = Uri.parse(path);
-
-        // tell type of image and put image data in intent
-        sharingIntent.setType("image/jpeg");
-        sharingIntent.putExtra(Intent.EXTRA_STREAM, screenshotUri);
         startActivity(Intent.createChooser(sharingIntent, "Share image"));
     }
 
-    /**
-     * get Dominant color from image
-     *
-     * @param bitmap image to get dominant color from
-     * @return dominant color in image
-     */
-    private int getDominantColor(Bitmap bitmap) {
-        return Palette.from(bitmap).generate().getDominantColor(Color.parseColor("#00FFFF"));
-    }
-
-
-    /**
-     * Helper method to inverse color given
-     *
-     * @param color to inverse
-     * @return color inversed
-     * A = A
-     * R = 255 - R
-     * G = 255 - G
-     * B = 255 - B
-     */
-    private int reverseColor(int color) {
-        int a = Color.alpha(color);
-        int r = 255 - Color.red(color);
-        int g = 255 - Color.green(color);
-        int b = 255 - Color.blue(color);
-        return Color.argb(a,
-                Math.max(r, 0),
-                Math.max(g, 0),
-                Math.max(b, 0));
-    }
-
-
     /**
      * helper method to delete all images in DB and gallery
      */
@@ -0,0 +1,258 @@
+package com.example.photoweather;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.BaseColumns;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Helper to delete or look up many images in gallery with few queries instead of 1 query per image
+ * <p>
+ * Images are grouped by their collection and handled with chunked "_id IN (...)" selections,
+ * chunks are as big as DB queries use as gallery is backed by SQLite too
+ */
+public class MediaStoreBatch {
+
+    /**
+     * not to be instantiated
+     */
+    private MediaStoreBatch() {
+    }
+
+    /**
+     * Delete images from gallery, must not be called from main thread
+     * <p>
+     * a chunk gallery refused to delete is left out of result so caller keeps it's photos,
+     * on API 29+ gallery skips images app doesn't own without failing so if less images
+     * than asked for were deleted gallery is asked which of them are still there
+     *
+     * @param resolver to delete images with
+     * @param urls     location of images in gallery
+     * @return urls of images that are not in gallery anymore
+     */
+    public static Set<String> delete(ContentResolver resolver, List<String> urls) {
+        Set<String> deleted = new HashSet<>();
+        Map<String, List<String>> idsByCollection = groupByCollection(urls, url -> {
+            if (deleteOne(resolver, url))
+                deleted.add(url);
+        });
+
+        for (Map.Entry<String, List<String>> entry : idsByCollection.entrySet()) {
+            Uri collection = Uri.parse(entry.getKey());
+            List<String> ids = entry.getValue();
+            for (int start = 0; start < ids.size(); start += PhotoDao.MAX_IDS_PER_QUERY) {
+                List<String> chunk = ids.subList(start, Math.min(ids.size(), start + PhotoDao.MAX_IDS_PER_QUERY));
+                int count;
+                try {
+                    count = resolver.delete(collection, inSelection(BaseColumns._ID, chunk.size()),
+                            chunk.toArray(new String[0]));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    continue;
+                }
+
+                // every image was deleted so no need to ask gallery again
+                if (count >= chunk.size()) {
+                    for (String id : chunk)
+                        deleted.add(entry.getKey() + "/" + id);
+                    continue;
+                }
+
+                // some images were skipped or already gone, only report images gallery doesn't have
+                Set<String> found = queryFoundIds(resolver, collection, chunk);
+                for (String id : chunk) {
+                    String url = entry.getKey() + "/" + id;
+                    if (found == null ? deleteOne(resolver, url) : !found.contains(id))
+                        deleted.add(url);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Find which images are missing from gallery by only querying their ids without
+     * reading any image data, must not be called from main thread
+     * <p>
+     * if gallery can't be queried images are assumed to exist so nothing is wrongly reported missing,
+     * images still being written are pending and hidden from queries by default so they are
+     * looked up too or photo being captured would be reported missing
+     *
+     * @param resolver to query gallery with
+     * @param urls     location of images in gallery
+     * @return urls of images that don't exist in gallery anymore
+     */
+    public static Set<String> findMissing(ContentResolver resolver, List<String> urls) {
+        Set<String> missing = new HashSet<>();
+        Map<String, List<String>> idsByCollection = groupByCollection(urls, url -> {
+            if (!exists(resolver, Uri.parse(url)))
+                missing.add(url);
+        });
+
+        for (Map.Entry<String, List<String>> entry : idsByCollection.entrySet()) {
+            Uri collection = Uri.parse(entry.getKey());
+            List<String> ids = entry.getValue();
+            for (int start = 0; start < ids.size(); start += PhotoDao.MAX_IDS_PER_QUERY) {
+                List<String> chunk = ids.subList(start, Math.min(ids.size(), start + PhotoDao.MAX_IDS_PER_QUERY));
+
+                // gallery can't answer so don't report anything missing
+                Set<String> found = queryFoundIds(resolver, collection, chunk);
+                if (found == null)
+                    continue;
+
+                for (String id : chunk) {
+                    if (!found.contains(id))
+                        missing.add(entry.getKey() + "/" + id);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Find which ids of a chunk gallery still has including pending images
+     *
+     * @param resolver   to query gallery with
+     * @param collection ids belong to
+     * @param chunk      ids to look up, not more than {@link PhotoDao#MAX_IDS_PER_QUERY}
+     * @return ids gallery still has or null if gallery can't answer
+     */
+    private static Set<String> queryFoundIds(ContentResolver resolver, Uri collection, List<String> chunk) {
+        Set<String> found = new HashSet<>();
+        try (Cursor cursor = queryIds(resolver, collection,
+                inSelection(BaseColumns._ID, chunk.size()), chunk.toArray(new String[0]))) {
+            if (cursor == null)
+                return null;
+            while (cursor.moveToNext())
+                found.add(cursor.getString(0));
+            return found;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Group urls of gallery items by their collection
+     * content://media/external/images/media/42 => collection "content://media/external/images/media" id "42"
+     *
+     * @param urls      location of images in gallery
+     * @param otherwise called for urls that are not items of a collection
+     * @return ids of images by collection they belong to
+     */
+    private static Map<String, List<String>> groupByCollection(List<String> urls, UrlHandler otherwise) {
+        Map<String, List<String>> idsByCollection = new HashMap<>();
+
+        for (String url : urls) {
+            if (url == null)
+                continue;
+
+            int slash = url.lastIndexOf('/');
+            String id = slash < 0 ? "" : url.substring(slash + 1);
+            if (id.isEmpty() || !TextUtils.isDigitsOnly(id)) {
+                // not a collection item so it has to be handled on its own
+                otherwise.handle(url);
+                continue;
+            }
+
+            String collection = url.substring(0, slash);
+            List<String> ids = idsByCollection.get(collection);
+            if (ids == null) {
+                ids = new ArrayList<>();
+                idsByCollection.put(collection, ids);
+            }
+            ids.add(id);
+        }
+        return idsByCollection;
+    }
+
+    /**
+     * @param column to select by
+     * @param count  number of arguments
+     * @return selection like "_id IN (?,?,?)"
+     */
+    static String inSelection(String column, int count) {
+        return column + " IN (" + TextUtils.join(",", Collections.nCopies(count, "?")) + ")";
+    }
+
+    /**
+     * Delete single image from gallery
+     *
+     * @param resolver to delete image with
+     * @param url      location of image in gallery
+     * @return true if image is not in gallery anymore
+     */
+    private static boolean deleteOne(ContentResolver resolver, String url) {
+        try {
+            resolver.delete(Uri.parse(url), null, null);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Check if single image exists in gallery
+     *
+     * @param resolver to query image with
+     * @param uri      location of image in gallery
+     * @return true if image exists or gallery can't answer
+     */
+    private static boolean exists(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = queryIds(resolver, uri, null, null)) {
+            return cursor == null || cursor.getCount() > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return true;
+        }
+    }
+
+    /**
+     * Query ids of gallery items including pending ones that are still being written
+     * <p>
+     * pending items are matched with query argument on API 30+ and with include pending uri on API 29,
+     * older versions have no pending items
+     *
+     * @param resolver      to query gallery with
+     * @param uri           collection or single item to query
+     * @param selection     to filter items with or null for all
+     * @param selectionArgs arguments of selection
+     * @return cursor of ids or null if gallery can't answer
+     */
+    @SuppressWarnings("deprecation")
+    private static Cursor queryIds(ContentResolver resolver, Uri uri, String selection, String[] selectionArgs) {
+        String[] projection = {BaseColumns._ID};
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+            queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_PENDING, MediaStore.MATCH_INCLUDE);
+            return resolver.query(uri, projection, queryArgs, null);
+        }
+        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.Q)
+            uri = MediaStore.setIncludePending(uri);
+        return resolver.query(uri, projection, selection, selectionArgs, null);
+    }
+
+    /**
+     * handles url that is not item of a collection
+     */
+    private interface UrlHandler {
+        void handle(String url);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.photoweather;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Stores images in gallery by compressing them straight into output stream of new gallery entry
+ * <p>
+ * Unlike MediaStore.Images.Media.insertImage no legacy thumbnails are made and on API 29+
+ * entry is kept pending while it's written so gallery never shows a half written image
+ */
+public class MediaStoreWriter {
+
+    // folder inside Pictures that holds images on API 29+
+    private static final String RELATIVE_DIR = "PhotoWeather";
+
+    /**
+     * formats images can be stored in
+     */
+    public enum Format {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        // mime type of gallery entry
+        final String mimeType;
+        // extension of file name
+        final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        /**
+         * looked up on every call and not kept in a field as WEBP_LOSSY doesn't exist before API 30
+         *
+         * @return format bitmap is compressed with on this device
+         */
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (this == JPEG)
+                return Bitmap.CompressFormat.JPEG;
+            // WEBP is lossy below quality 100 up to API 29 but lossless at 100 on API 30+
+            // so lossy is asked for explicitly where it exists
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        }
+    }
+
+    // to insert and write gallery entries
+    private final ContentResolver mContentResolver;
+    // format images are stored in
+    private final Format mFormat;
+    // compression quality 0 - 100
+    private final int mQuality;
+
+    /**
+     * Writer using format and quality in resources
+     *
+     * @param context to get content resolver and resources
+     */
+    public MediaStoreWriter(Context context) {
+        this(context.getContentResolver(),
+                Format.valueOf(context.getString(R.string.photo_format).toUpperCase(Locale.US)),
+                context.getResources().getInteger(R.integer.photo_quality));
+    }
+
+    /**
+     * @param resolver to insert and write gallery entries
+     * @param format   images are stored in
+     * @param quality  compression quality 0 - 100
+     */
+    public MediaStoreWriter(ContentResolver resolver, Format format, int quality) {
+        this.mContentResolver = resolver;
+        this.mFormat = format;
+        this.mQuality = quality;
+    }
+
+    /**
+     * Make empty gallery entry image is written into later, must not be called from main thread
+     * <p>
+     * entry is made on it's own so it's location can be checkpointed before image is written
+     * and a write that was cut off can be done again into same entry
+     *
+     * @param name        file name of image without extension
+     * @param description of image
+     * @param takenAt     time in milliseconds photo was taken so gallery sorts it by capture time
+     * @return location of new entry, on API 29+ it's pending and hidden until it's written
+     * @throws IOException if entry couldn't be made
+     */
+    public Uri create(String name, String description, long takenAt) throws IOException {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Images.Media.DISPLAY_NAME, name + mFormat.extension);
+        values.put(MediaStore.Images.Media.TITLE, name);
+        values.put(MediaStore.Images.Media.DESCRIPTION, description);
+        values.put(MediaStore.Images.Media.MIME_TYPE, mFormat.mimeType);
+        values.put(MediaStore.Images.Media.DATE_TAKEN, takenAt);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // hide entry from other apps until it's fully written
+            values.put(MediaStore.Images.Media.RELATIVE_PATH,
+                    Environment.DIRECTORY_PICTURES + "/" + RELATIVE_DIR);
+            values.put(MediaStore.Images.Media.IS_PENDING, 1);
+        }
+
+        Uri uri = mContentResolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+        if (uri == null)
+            throw new IOException("Can't create image in gallery");
+        return uri;
+    }
+
+    /**
+     * Store image in entry made by {@link #create(String, String, long)} and publish it
+     * must not be called from main thread
+     * <p>
+     * whatever entry held before is replaced so writing same entry again is safe
+     *
+     * @param uri    location of entry
+     * @param bitmap image to store
+     * @throws IOException if image couldn't be stored, entry is deleted then so nothing broken
+     *                     is left in gallery
+     */
+    public void write(Uri uri, Bitmap bitmap) throws IOException {
+        try {
+            // compress straight into gallery file, no temporary copy
+            try (OutputStream output = mContentResolver.openOutputStream(uri, "wt")) {
+                if (output == null || !bitmap.compress(mFormat.compressFormat(), mQuality, output))
+                    throw new IOException("Can't write image to gallery");
+            }
+
+            // publish entry now that it's complete
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                ContentValues publish = new ContentValues();
+                publish.put(MediaStore.Images.Media.IS_PENDING, 0);
+                mContentResolver.update(uri, publish, null, null);
+            }
+        } catch (IOException | RuntimeException e) {
+            // don't leave broken entry in gallery
+            mContentResolver.delete(uri, null, null);
+            throw e;
+        }
+    }
+
+    /**
+     * Replace image of existing gallery entry with JPEG of bitmap keeping EXIF of old image
+     * must not be called from main thread
+     * <p>
+     * whole file with it's EXIF is built in memory first so old image is only truncated once
+     * new image is complete, EXIF is made to describe new image size and it's old thumbnail is dropped
+     *
+     * @param uri         location of gallery entry to overwrite
+     * @param bitmap      image to store
+     * @param exifSegment EXIF of old image from JpegExif.readExifSegment or null if it had none
+     * @throws IOException if image couldn't be stored
+     */
+    public void overwrite(Uri uri, Bitmap bitmap, byte[] exifSegment) throws IOException {
+        // entry was made as JPEG by camera so format is always JPEG
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        if (!bitmap.compress(Bitmap.CompressFormat.JPEG, mQuality, jpeg))
+            throw new IOException("Can't compress image");
+
+        // nothing can fail anymore after old image is truncated except writing itself
+        if (exifSegment != null)
+            exifSegment = JpegExif.rewriteExifSegment(exifSegment, bitmap.getWidth(), bitmap.getHeight());
+        ByteArrayOutputStream file = new ByteArrayOutputStream(jpeg.size()
+                + (exifSegment == null ? 0 : exifSegment.length));
+        JpegExif.write(jpeg.toByteArray(), exifSegment, file);
+
+        // "wt" truncates old image so nothing of it is left after new image
+        try (OutputStream output = mContentResolver.openOutputStream(uri, "wt")) {
+            if (output == null)
+                throw new IOException("Can't open image in gallery");
+            file.writeTo(output);
+        }
+    }
+}
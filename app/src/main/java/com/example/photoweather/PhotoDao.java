@@ -1,12 +1,17 @@
 package com.example.photoweather;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.PhotoWithWeather;
+import com.example.photoweather.models.WeatherSnapshot;
 
 import java.util.List;
 
@@ -19,10 +24,38 @@ import java.util.List;
 public interface PhotoDao {
 
     /**
+     * url is unique so inserting a photo that is already in DB does nothing
+     *
      * @param photo to insert in DB
+     * @return id of inserted photo or -1 if it was already in DB
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(Photo photo);
+
+    /**
+     * not replaced on conflict as rows deleted by replace don't fire triggers that keep
+     * search index in sync, photo is always new so it has no weather yet
+     *
+     * @param weatherSnapshot to insert in DB
      */
     @Insert
-    void insert(Photo photo);
+    void insertWeather(WeatherSnapshot weatherSnapshot);
+
+    /**
+     * Insert photo and weather stamped on it in 1 transaction so photo is never stored without
+     * it's weather, nothing is inserted if photo is already in DB
+     *
+     * @param photo           to insert in DB
+     * @param weatherSnapshot weather stamped on photo, it's photo id is set here
+     */
+    @Transaction
+    default void insert(Photo photo, WeatherSnapshot weatherSnapshot) {
+        long id = insert(photo);
+        if (id == -1)
+            return;
+        weatherSnapshot.setPhotoId((int) id);
+        insertWeather(weatherSnapshot);
+    }
 
     /**
      * @param photo to delete from DB
@@ -31,14 +64,108 @@ public interface PhotoDao {
     void delete(Photo photo);
 
     /**
-     * Delete all photos from DB
+     * max number of ids in 1 query as SQLite limits number of query arguments to 999,
+     * also used for gallery queries which are backed by SQLite
+     */
+    int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * @return photos table newest first as pages loaded only when they are about to be shown
+     * and invalidated when any change in DB happened
+     * <p>
+     * index on takenAt also holds id so photos taken at same millisecond keep order they were
+     * inserted in and pages are read from index without sorting
+     */
+    @Query("SELECT * FROM photo_table ORDER BY takenAt DESC, id DESC")
+    DataSource.Factory<Integer, Photo> getPagedPhotos();
+
+    /**
+     * @param cityKey normalized city name
+     * @return photos of city newest first as pages, read in order from index on city and time
+     * of weather table so only matching photos are visited
+     */
+    @Query("SELECT photo_table.* FROM weather_snapshot_table "
+            + "INNER JOIN photo_table ON photo_table.id = weather_snapshot_table.photoId "
+            + "WHERE weather_snapshot_table.cityKey = :cityKey "
+            + "ORDER BY weather_snapshot_table.takenAt DESC, weather_snapshot_table.photoId DESC")
+    DataSource.Factory<Integer, Photo> getPagedPhotosByCity(String cityKey);
+
+    /**
+     * photos stored before weather was kept are included as every photo has time it was taken
+     *
+     * @param from first time in milliseconds photos were taken
+     * @param to   last time in milliseconds photos were taken
+     * @return photos taken within range newest first as pages, read in order from index on time
+     */
+    @Query("SELECT * FROM photo_table WHERE takenAt BETWEEN :from AND :to ORDER BY takenAt DESC, id DESC")
+    DataSource.Factory<Integer, Photo> getPagedPhotosByDateRange(long from, long to);
+
+    /**
+     * matching photos are found from index on temperature then sorted, a band holds
+     * a small part of history so sorting it is cheap
+     *
+     * @param minTemperature lowest temperature in °C
+     * @param maxTemperature highest temperature in °C
+     * @return photos taken within temperature band newest first as pages
+     */
+    @Query("SELECT photo_table.* FROM weather_snapshot_table "
+            + "INNER JOIN photo_table ON photo_table.id = weather_snapshot_table.photoId "
+            + "WHERE weather_snapshot_table.temperature BETWEEN :minTemperature AND :maxTemperature "
+            + "ORDER BY weather_snapshot_table.takenAt DESC, weather_snapshot_table.photoId DESC")
+    DataSource.Factory<Integer, Photo> getPagedPhotosByTemperature(double minTemperature, double maxTemperature);
+
+    /**
+     * words are looked up in full text index of weather then matching photos are sorted newest
+     * first like temperature band, photos have to match all words so they aren't ranked,
+     * ranking by offsets or matchinfo would read text of every match again for every page
+     *
+     * @param matchQuery full text query of words searched for
+     * @return photos matching all words newest first as pages
+     */
+    @Query("SELECT photo_table.* FROM weather_search_table "
+            + "INNER JOIN photo_table ON photo_table.id = weather_search_table.docid "
+            + "WHERE weather_search_table MATCH :matchQuery "
+            + "ORDER BY photo_table.takenAt DESC, photo_table.id DESC")
+    DataSource.Factory<Integer, Photo> searchPhotos(String matchQuery);
+
+    /**
+     * @param id of photo
+     * @return live data of photo and weather stamped on it, null once photo is deleted
+     */
+    @Transaction
+    @Query("SELECT * FROM photo_table WHERE id = :id")
+    LiveData<PhotoWithWeather> getPhotoWithWeather(int id);
+
+    /**
+     * @param id            of photo to update
+     * @param thumbnailPath path of small thumbnail of photo
+     */
+    @Query("UPDATE photo_table SET thumbnailPath = :thumbnailPath WHERE id = :id")
+    void updateThumbnail(int id, String thumbnailPath);
+
+    /**
+     * must not be called from main thread
+     *
+     * @return all photos in DB as they are at time of call
+     */
+    @Query("SELECT * FROM photo_table")
+    List<Photo> getPhotosSnapshot();
+
+    /**
+     * @param ids of photos to delete, must not be more than {@link #MAX_IDS_PER_QUERY}
      */
-    @Query("DELETE FROM photo_table")
-    void deleteAllPhotos();
+    @Query("DELETE FROM photo_table WHERE id IN (:ids)")
+    void deletePhotosByIds(List<Integer> ids);
 
     /**
-     * @return whole photos table as live data to observe and know if any change in DB happened
+     * Delete photos in chunks inside 1 transaction so either all of them are deleted or none
+     *
+     * @param ids of photos to delete
      */
-    @Query("SELECT * FROM photo_table ORDER BY timeStamp DESC")
-    LiveData<List<Photo>> getAllPhotos();
+    @Transaction
+    default void deletePhotos(List<Integer> ids) {
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            deletePhotosByIds(ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY)));
+        }
+    }
 }
@@ -6,14 +6,19 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 
+import com.example.photoweather.models.CachedWeather;
+import com.example.photoweather.models.CaptureJob;
 import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.WeatherSearch;
+import com.example.photoweather.models.WeatherSnapshot;
 
 /**
  * @author Ali Adel
  * <p>
  * Class used by Room to instantiate DB and return it's instance
  */
-@Database(entities = Photo.class, version = 1, exportSchema = false)
+@Database(entities = {Photo.class, CachedWeather.class, CaptureJob.class, WeatherSnapshot.class,
+        WeatherSearch.class}, version = 7)
 public abstract class PhotoDatabase extends RoomDatabase {
 
     /**
@@ -32,6 +37,20 @@ public abstract class PhotoDatabase extends RoomDatabase {
      */
     public abstract PhotoDao photoDao();
 
+    /**
+     * get instance of weather cache Dao interface generated by room
+     *
+     * @return Dao interface to interact with weather cache table
+     */
+    public abstract WeatherDao weatherDao();
+
+    /**
+     * get instance of capture job Dao interface generated by room
+     *
+     * @return Dao interface to interact with capture job table
+     */
+    public abstract CaptureJobDao captureJobDao();
+
     /**
      * get Instance of DB Synchronized to not allow the chance of more than one thread
      * calling at same time and make multiple instance of DB
@@ -43,7 +62,9 @@ public abstract class PhotoDatabase extends RoomDatabase {
         if (instance == null) {
             instance = Room.databaseBuilder(context.getApplicationContext(),
                     PhotoDatabase.class, DB_NAME)
-                    .fallbackToDestructiveMigration()
+                    // history must survive updates, only wiped if app is downgraded
+                    .addMigrations(DatabaseMigrations.ALL)
+                    .fallbackToDestructiveMigrationOnDowngrade()
                     .build();
         }
         return instance;
@@ -0,0 +1,75 @@
+package com.example.photoweather;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Background job that periodically removes photos from history whose images were
+ * deleted from gallery outside of app
+ */
+public class PhotoIntegrityWorker extends Worker {
+
+    // unique name of periodic job so it is only scheduled once
+    private static final String WORK_NAME = "photo_integrity";
+    // how often photos are checked
+    private static final long REPEAT_INTERVAL_HOURS = 24;
+
+    /**
+     * Constructor used by WorkManager to make worker
+     *
+     * @param context      application context
+     * @param workerParams parameters of job
+     */
+    public PhotoIntegrityWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedule periodic job if it is not already scheduled
+     *
+     * @param context to get WorkManager with
+     */
+    public static void schedule(Context context) {
+        // no hurry so only run when device has battery to spare
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(PhotoIntegrityWorker.class,
+                REPEAT_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * runs on background thread of WorkManager and waits for repository to clean up photos
+     */
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            Repository.getRepositoryInstance((Application) getApplicationContext())
+                    .removeMissingPhotos()
+                    .get();
+            return Result.success();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.retry();
+        }
+    }
+}
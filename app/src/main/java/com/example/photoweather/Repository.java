@@ -1,23 +1,49 @@
 package com.example.photoweather;
 
 import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
 import android.net.Uri;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
-
+import androidx.paging.DataSource;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
+
+import com.example.photoweather.capture.CaptureWorker;
+import com.example.photoweather.metrics.Metrics;
+import com.example.photoweather.metrics.Section;
+import com.example.photoweather.metrics.TimedDataSourceFactory;
+import com.example.photoweather.models.CaptureJob;
+import com.example.photoweather.models.HistoryFilter;
 import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.PhotoWithWeather;
 import com.example.photoweather.models.Weather;
+import com.example.photoweather.models.WeatherSnapshot;
+import com.google.gson.Gson;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
-import retrofit2.internal.EverythingIsNonNull;
 
 /**
  * @author Ali Adel
@@ -26,6 +52,10 @@ import retrofit2.internal.EverythingIsNonNull;
  * or gotten from network
  * <p>
  * Using Singleton Pattern so only 1 repository instance is used throughout the entire application
+ * <p>
+ * First repository call comes from a ViewModel on main thread during cold start, so Retrofit and
+ * Room are built on a background thread and everything that needs them waits behind a ready signal
+ * while live data is given to ViewModels at once
  */
 public class Repository {
 
@@ -34,16 +64,62 @@ public class Repository {
     // App id used to get authorization from API but can only make 60 calls per minute
     // if it makes more it will be blocked
     private static final String APP_ID = "324bcf04cbeda7126c6c1207df0407b2";
+    // number of photos loaded in each page of history
+    private static final int PHOTOS_PAGE_SIZE = 30;
+    // camera job older than this with no photo written is left over from a camera that never returned
+    private static final long STALE_CAMERA_JOB_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // calls allowed by API every minute
+    private static final int CALLS_PER_MINUTE = 60;
+    // max calls made back to back before calls get spread across the minute
+    private static final int MAX_BURST = 10;
 
     // weather live data that needs to be observed from activities and fragments
     private MutableLiveData<Weather> mWeather = new MutableLiveData<>();
-    // API that retrofit generates functions for to use to use API of website
-    private WeatherApi mApi;
-
+    // holds network calls until API quota allows them
+    private RequestScheduler mRequestScheduler;
+    // makes network calls sharing calls in flight for same city and cancelling older cities
+    // created in background so only used once repository is ready
+    private WeatherFetcher mWeatherFetcher;
+    // normalized name of latest city requested, only its weather is allowed to reach UI
+    private volatile String mLatestCityKey;
+    // name of latest city as it is queried from network, refreshed once network returns
+    private volatile String mLatestCityName;
+    // cache of weather responses in memory and DB to not make network call for every lookup
+    private WeatherCache mWeatherCache;
+    // background lanes to do DB and gallery operations away from main thread
+    private IoExecutors mIoExecutors = IoExecutors.getInstance();
+    // timings and counts of hot paths
+    private final Metrics mMetrics = Metrics.getInstance();
+
+    // makes small thumbnails of photos for history grid
+    private ThumbnailGenerator mThumbnailGenerator;
+    // ids of photos whose thumbnails were already requested so they are only made once
+    private final Set<Integer> mRequestedThumbnails = Collections.synchronizedSet(new HashSet<>());
+
+    // opened once network and DB clients are created in background
+    private final CountDownLatch mReadyLatch = new CountDownLatch(1);
+    // main thread work waiting for repository to be ready, null once it is ready or failed
+    private List<Runnable> mReadyCallbacks = new ArrayList<>();
+    // why network and DB clients couldn't be created, set before ready signal, null if they were
+    private volatile Throwable mInitError;
+    // to run main thread work once repository is ready
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // DB to run operations of several tables in 1 transaction
+    private PhotoDatabase mPhotoDatabase;
     // DB interface to use DB operations generated by Room
     private PhotoDao mPhotoDao;
-    // live data of all photos in DB to be observed by activites and fragments
-    private LiveData<List<Photo>> mAllPhotos;
+    // DB interface of photos being taken or processed
+    private CaptureJobDao mCaptureJobDao;
+    // to store weather of photos being processed as json
+    private Gson mGson;
+    // paged photos from DB, created in background
+    private LiveData<PagedList<Photo>> mPagedPhotos;
+    // page size of history shared by all photos and filtered photos
+    private PagedList.Config mPagedListConfig;
+    // live data of photos in DB loaded page by page to be observed by activites and fragments
+    // given at once and fed by DB once it is ready
+    private final MediatorLiveData<PagedList<Photo>> mAllPhotos = new MediatorLiveData<>();
 
     // instance of repository because implementing Singleton Pattern
     private static Repository mInstance;
@@ -53,28 +129,220 @@ public class Repository {
 
     /**
      * private constructor to not allow anyone to instance new Repository
+     * <p>
+     * only cheap work is done here as it runs on main thread, Retrofit and Room are
+     * built in background by {@link #initialize()}
      *
      * @param application to use to generate DB
      */
     private Repository(Application application) {
-        // instantiate Retrofit instance to use network operations
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
         // get reference to application context
         mApplication = application;
 
-        // get API from retrofit
-        mApi = retrofit.create(WeatherApi.class);
+        // scheduler that spreads calls across the minute to never exceed API quota
+        // and wakes up on main thread once quota allows next call
+        mRequestScheduler = new RequestScheduler(
+                new TokenBucket(MAX_BURST, CALLS_PER_MINUTE, TimeUnit.MINUTES.toMillis(1), Clock.SYSTEM),
+                mMainHandler::postDelayed);
+
+        // photos reach live data once DB is open
+        whenReady(() -> mAllPhotos.addSource(mPagedPhotos, mAllPhotos::setValue));
+
+        // not a lane thread as every lane task waits for it and it is on critical path of startup
+        new Thread(this::initialize, "repository-init").start();
+    }
+
+    /**
+     * create network and DB clients then signal repository is ready
+     * <p>
+     * runs on it's own thread once, fields it sets are only read after ready signal,
+     * signal is given even if creating clients fails so nothing waits for it forever
+     */
+    private void initialize() {
+        Section section = mMetrics.beginSection(Metrics.REPOSITORY_INITIALIZE);
+        try {
+            // gson shared by retrofit and weather cache so cached json matches network json
+            Gson gson = new Gson();
+            mGson = gson;
+
+            // instantiate Retrofit instance to use network operations
+            Retrofit retrofit = new Retrofit.Builder()
+                    .baseUrl(BASE_URL)
+                    .addConverterFactory(GsonConverterFactory.create(gson))
+                    .build();
+
+            // get API from retrofit and make network calls through fetcher
+            mWeatherFetcher = new WeatherFetcher(retrofit.create(WeatherApi.class), APP_ID, mRequestScheduler);
+
+            // get database instance
+            PhotoDatabase photoDatabase = PhotoDatabase.getInstance(mApplication);
+            mPhotoDatabase = photoDatabase;
+            // get Dao instance to use interface that Room generates to interact with DB
+            mPhotoDao = photoDatabase.photoDao();
+            mCaptureJobDao = photoDatabase.captureJobDao();
+            // get paged photos live data to observe any change in DB
+            // only pages around what is shown on screen are loaded
+            PagedList.Config pagedListConfig = new PagedList.Config.Builder()
+                    .setPageSize(PHOTOS_PAGE_SIZE)
+                    .setEnablePlaceholders(false)
+                    .build();
+            mPagedListConfig = pagedListConfig;
+            // every page query is timed
+            mPagedPhotos = new LivePagedListBuilder<>(new TimedDataSourceFactory<>(mPhotoDao.getPagedPhotos(),
+                    Metrics.PHOTOS_LOAD_INITIAL, Metrics.PHOTOS_LOAD_RANGE), pagedListConfig).build();
+            // weather cache backed by weather table in DB
+            mWeatherCache = new WeatherCache(photoDatabase.weatherDao(), gson, Clock.SYSTEM);
+
+            // thumbnails of history grid are stored in app storage
+            mThumbnailGenerator = new ThumbnailGenerator(mApplication);
+        } catch (Throwable t) {
+            // kept so work waiting for repository fails with it instead of waiting forever
+            t.printStackTrace();
+            mInitError = t;
+        } finally {
+            section.end();
+            // signal lanes and main thread that repository can be used or failed
+            signalReady();
+        }
+        if (mInitError != null)
+            return;
+
+        // show last weather at once and refresh it whenever network comes back
+        restoreLatestWeather();
+        registerNetworkCallback();
+
+        // clean up photos deleted from gallery outside of app periodically, not on every launch
+        // as scanning whole history competes with first screen for disk
+        PhotoIntegrityWorker.schedule(mApplication);
+
+        // finish photos process was killed while processing
+        resumeCaptureJobs();
+    }
+
+    /**
+     * release threads waiting for repository and post main thread work waiting for it,
+     * work waiting is dropped if repository failed as it needs clients that don't exist
+     */
+    private void signalReady() {
+        // latch first so work that finds no waiting list also finds repository ready
+        mReadyLatch.countDown();
+        List<Runnable> callbacks;
+        synchronized (this) {
+            callbacks = mReadyCallbacks;
+            mReadyCallbacks = null;
+        }
+        if (mInitError != null)
+            return;
+        for (Runnable callback : callbacks)
+            mMainHandler.post(callback);
+    }
+
+    /**
+     * @return true once network and DB clients are created
+     */
+    public boolean isReady() {
+        return mReadyLatch.getCount() == 0 && mInitError == null;
+    }
+
+    /**
+     * run work on main thread once repository is ready, must be called from main thread
+     * <p>
+     * work runs at once if repository is already ready else it is posted in order once it is,
+     * it never runs if repository failed
+     *
+     * @param callback work that needs network or DB clients
+     */
+    private void whenReady(Runnable callback) {
+        synchronized (this) {
+            if (mReadyCallbacks != null) {
+                mReadyCallbacks.add(callback);
+                return;
+            }
+        }
+        if (mInitError == null)
+            callback.run();
+    }
 
-        // get database instance
-        PhotoDatabase photoDatabase = PhotoDatabase.getInstance(application);
-        // get Dao instance to use interface that Room generates to interact with DB
-        mPhotoDao = photoDatabase.photoDao();
-        // get all photos live data to observe any change in DB
-        mAllPhotos = mPhotoDao.getAllPhotos();
+    /**
+     * block background thread until repository is ready, must not be called from main thread
+     *
+     * @throws IllegalStateException if network or DB clients couldn't be created, so futures
+     *                               of work waiting for repository fail instead of hanging
+     */
+    private void awaitReady() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                mReadyLatch.await();
+                break;
+            } catch (InterruptedException e) {
+                // keep waiting as caller can't do anything without DB, interrupt is restored after
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (mInitError != null)
+            throw new IllegalStateException("Repository couldn't be initialized", mInitError);
+    }
+
+    /**
+     * submit task to lane that runs once repository is ready
+     *
+     * @param lane     to run task in
+     * @param priority of task
+     * @param task     to run in background
+     * @param <T>      type of task result
+     * @return future of task result
+     */
+    private <T> Future<T> submitWhenReady(IoLane lane, IoLane.Priority priority, Callable<T> task) {
+        return lane.submit(priority, () -> {
+            awaitReady();
+            return task.call();
+        });
+    }
+
+    /**
+     * submit task to lane that runs once repository is ready
+     *
+     * @param lane     to run task in
+     * @param priority of task
+     * @param task     to run in background
+     * @return future that completes once task is done
+     */
+    private Future<?> submitWhenReady(IoLane lane, IoLane.Priority priority, Runnable task) {
+        return lane.submit(priority, () -> {
+            awaitReady();
+            task.run();
+        });
+    }
+
+    /**
+     * submit task user is waiting for with high priority and tell caller if it didn't happen
+     * <p>
+     * a full lane is known at once so it is reported on caller's thread, must be called
+     * from main thread
+     *
+     * @param lane      to run task in
+     * @param task      returns true if it did what user asked
+     * @param onFailure run on main thread if lane was full, task returned false or failed,
+     *                  null if caller has nothing left to do then
+     * @return future of task result
+     */
+    private Future<Boolean> submitUserAction(IoLane lane, Callable<Boolean> task, Runnable onFailure) {
+        Future<Boolean> future = submitWhenReady(lane, IoLane.Priority.HIGH, () -> {
+            boolean done = false;
+            try {
+                done = task.call();
+                return done;
+            } finally {
+                if (!done && onFailure != null)
+                    mMainHandler.post(onFailure);
+            }
+        });
+        if (IoLane.isRejected(future) && onFailure != null)
+            onFailure.run();
+        return future;
     }
 
     /**
@@ -102,179 +370,634 @@ public class Repository {
     }
 
     /**
-     * called by live data to make network call and get new weather data
+     * @return number of weather calls waiting for API quota
+     */
+    public int getWeatherQueueDepth() {
+        return mRequestScheduler.getQueueDepth();
+    }
+
+    /**
+     * @return time in milliseconds until next waiting weather call is made
+     */
+    public long getWeatherQueueWaitMillis() {
+        return mRequestScheduler.getCurrentWaitMillis();
+    }
+
+    /**
+     * called by live data to get new weather data
+     * <p>
+     * cached weather is shown at once if available and network call is only made
+     * if city is not cached or cached weather is stale
      *
      * @param cityName to query network to get weather information for that city
      */
     public void updateWeather(String cityName) {
-        // get API function first and provide it parameters of app id and city to get info of
-        Call<Weather> request = mApi.getWeather(APP_ID, cityName);
-        // then tell retrofit to make the network call and attach the callback for when response returns
-        request.enqueue(new Callback<Weather>() {
-            @EverythingIsNonNull
-            @Override
-            public void onResponse(Call<Weather> call, Response<Weather> response) {
-                // if response is successful then change live data for activities and fragments to
-                // be notified and update their UI accordingly
-                if (response.isSuccessful())
-                    mWeather.setValue(response.body());
-                else
-                    mWeather.setValue(null);
-                // if response is failed then update live data with null for UI to know that there
-                // was a problem with network request and inform user
+        // same city typed differently shares same cache entry
+        String cityKey = WeatherCache.normalizeCity(cityName);
+        // older cities still loading must not override this one
+        // nor weather restored on launch
+        synchronized (this) {
+            mLatestCityKey = cityKey;
+            mLatestCityName = cityName;
+        }
+
+        // cache and network client are still being created so look city up once they are
+        if (!isReady()) {
+            whenReady(() -> {
+                if (cityKey.equals(mLatestCityKey))
+                    updateWeather(cityName);
+            });
+            return;
+        }
+
+        // first check memory as it is instant
+        WeatherCache.Entry cached = mWeatherCache.getFromMemory(cityKey);
+        if (cached != null) {
+            mMetrics.increment(Metrics.WEATHER_CACHE_MEMORY_HIT);
+            mWeather.setValue(cached.getWeather());
+            // revalidate in background only if stale
+            if (mWeatherCache.isStale(cached))
+                fetchWeather(cityKey, cityName, true);
+            return;
+        }
+
+        // then check DB away from main thread
+        submitWhenReady(mIoExecutors.db(), IoLane.Priority.HIGH, () -> {
+            Section diskRead = mMetrics.beginSection(Metrics.WEATHER_CACHE_DISK_READ);
+            WeatherCache.Entry fromDisk = mWeatherCache.getFromDisk(cityKey);
+            diskRead.end();
+            mMetrics.increment(fromDisk != null ? Metrics.WEATHER_CACHE_DISK_HIT : Metrics.WEATHER_CACHE_MISS);
+            // user may have asked for another city while reading from DB
+            if (!cityKey.equals(mLatestCityKey))
+                return;
+            if (fromDisk != null)
+                mWeather.postValue(fromDisk.getWeather());
+            // not cached at all or stale so get it from network, back on main thread
+            // as cache and fetcher are used from main thread
+            if (fromDisk == null || mWeatherCache.isStale(fromDisk)) {
+                boolean hasFallback = fromDisk != null;
+                mMainHandler.post(() -> {
+                    // a newer city asked for meanwhile must not have it's call cancelled
+                    if (cityKey.equals(mLatestCityKey))
+                        fetchWeather(cityKey, cityName, hasFallback);
+                });
             }
+        });
+    }
 
-            @EverythingIsNonNull
+    /**
+     * show weather of city fetched last before user asks for any city so weather info
+     * and capture never wait for network on launch or offline, on DB lane
+     * <p>
+     * stale weather is refreshed in background once it is shown
+     *
+     * @return future that completes once weather is restored
+     */
+    private Future<?> restoreLatestWeather() {
+        return submitWhenReady(mIoExecutors.db(), IoLane.Priority.HIGH, () -> {
+            String cityKey = mWeatherCache.getLatestCityKey();
+            // user already asked for a city or nothing was ever fetched
+            if (cityKey == null || mLatestCityKey != null)
+                return;
+            WeatherCache.Entry entry = mWeatherCache.getFromDisk(cityKey);
+            if (entry == null)
+                return;
+
+            synchronized (this) {
+                // user may have asked for a city while reading from DB
+                if (mLatestCityKey != null)
+                    return;
+                // normalized name is a valid query as well
+                mLatestCityKey = cityKey;
+                mLatestCityName = cityKey;
+            }
+            mWeather.postValue(entry.getWeather());
+            mMainHandler.post(this::refreshLatestWeather);
+        });
+    }
+
+    /**
+     * refresh weather of latest city from network if it isn't cached or is stale
+     * must be called from main thread
+     * <p>
+     * called once network comes back so weather shown offline is replaced as soon as possible
+     */
+    private void refreshLatestWeather() {
+        String cityKey = mLatestCityKey;
+        String cityName = mLatestCityName;
+        if (cityKey == null || cityName == null)
+            return;
+
+        WeatherCache.Entry cached = mWeatherCache.getFromMemory(cityKey);
+        if (cached == null || mWeatherCache.isStale(cached))
+            fetchWeather(cityKey, cityName, cached != null);
+    }
+
+    /**
+     * listen for network becoming available for whole life of process
+     * to refresh weather that was shown while offline
+     */
+    private void registerNetworkCallback() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) mApplication.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null)
+            return;
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
             @Override
-            public void onFailure(Call<Weather> call, Throwable t) {
-                // in case request failed totally then inform UI that request failed to inform user
-                mWeather.setValue(null);
+            public void onAvailable(Network network) {
+                // called on connectivity thread, cache and fetcher are used from main thread
+                mMainHandler.post(Repository.this::refreshLatestWeather);
             }
         });
     }
 
+    /**
+     * make network call to get weather data and store it in cache
+     * must be called from main thread
+     * <p>
+     * tapping search several times for same city shares 1 network call
+     *
+     * @param cityKey     normalized city name used as cache key
+     * @param cityName    to query network to get weather information for that city
+     * @param hasFallback true if cached weather is already shown so failure shouldn't replace it
+     */
+    private void fetchWeather(String cityKey, String cityName, boolean hasFallback) {
+        // refreshing weather already shown can wait behind calls user is waiting for
+        RequestScheduler.Priority priority = hasFallback
+                ? RequestScheduler.Priority.BACKGROUND
+                : RequestScheduler.Priority.USER_VISIBLE;
+
+        mWeatherFetcher.fetch(cityKey, cityName, priority, weather -> {
+            // if response is successful then cache it even if user moved on to another city
+            if (weather != null) {
+                WeatherCache.Entry entry = mWeatherCache.remember(cityKey, weather);
+                submitWhenReady(mIoExecutors.db(), IoLane.Priority.LOW, () -> mWeatherCache.persist(cityKey, entry));
+            }
+
+            // response of a city that is no longer the latest one must not reach UI
+            if (!cityKey.equals(mLatestCityKey))
+                return;
+
+            // change live data for activities and fragments to be notified and update their UI
+            // if request failed then update live data with null for UI to know that there
+            // was a problem with network request and inform user unless cached weather is shown
+            if (weather != null)
+                mWeather.setValue(weather);
+            else if (!hasFallback)
+                mWeather.setValue(null);
+        });
+    }
+
 
     /**
-     * uses async task to not do DB operations on main thread (UI thread)
-     * inserts photo in DB
+     * inserts photo in DB on DB lane to not do DB operations on main thread (UI thread)
      *
      * @param photo to be inserted in DB
+     * @return future that completes once photo is inserted
      */
-    public void insert(Photo photo) {
-        new InsertPhotoAsyncTask(mPhotoDao).execute(photo);
+    public Future<?> insert(Photo photo) {
+        return submitWhenReady(mIoExecutors.db(), IoLane.Priority.HIGH, () -> mPhotoDao.insert(photo));
     }
 
 
     /**
-     * uses async task to not do DB operations on main thread (UI thread)
-     * deletes photo from DB
+     * deletes image from gallery on media lane then photo from DB on DB lane so DB writes
+     * never wait behind gallery, thumbnail is deleted once photo is gone from DB
+     * <p>
+     * photo stays in history if gallery refused to delete it so user can try again
      *
-     * @param photo to be deleted from DB
+     * @param photo     to be deleted
+     * @param onFailure run on main thread if lane was full or photo couldn't be deleted
+     * @return future that completes once photo is deleted
      */
-    public void delete(Photo photo) {
-        new DeletePhotoAsyncTask(mPhotoDao, mApplication).execute(photo);
+    public Future<?> delete(Photo photo, Runnable onFailure) {
+        return submitUserAction(mIoExecutors.media(), () -> {
+            if (!deleteFromGallery(photo.getUrl()))
+                return false;
+            runOnDbLane(IoLane.Priority.HIGH, () -> {
+                mPhotoDao.delete(photo);
+                return null;
+            });
+            ThumbnailGenerator.delete(photo.getThumbnailPath());
+            return true;
+        }, onFailure);
     }
 
     /**
-     * uses async task to not do DB operations on main thread (UI thread)
-     * deletes all photos from DB
+     * deletes all photos from gallery on media lane and from DB on DB lane to not block main thread
+     * <p>
+     * photos are read from DB at time of delete, gallery images are deleted in batches
+     * then rows of images gallery deleted are deleted in 1 transaction so photos inserted
+     * meanwhile are kept and photos gallery refused to delete stay in history
+     *
+     * @param onFailure run on main thread if lane was full or any photo couldn't be deleted
+     * @return future that completes once all photos are deleted
      */
-    public void deleteAllPhotos() {
-        new DeleteAllPhotosAsyncTask(mPhotoDao, mApplication, mAllPhotos.getValue()).execute();
+    public Future<?> deleteAllPhotos(Runnable onFailure) {
+        return submitUserAction(mIoExecutors.media(), () -> {
+            List<Photo> photos = runOnDbLane(IoLane.Priority.HIGH, mPhotoDao::getPhotosSnapshot);
+
+            // if no photos in first place just return and do nothing
+            if (photos.isEmpty())
+                return true;
+
+            List<String> urls = new ArrayList<>(photos.size());
+            for (Photo photo : photos)
+                urls.add(photo.getUrl());
+
+            // delete from gallery then from DB only what gallery deleted
+            Set<String> deletedUrls = MediaStoreBatch.delete(mApplication.getContentResolver(), urls);
+            int deleted = deletePhotosOnDbLane(IoLane.Priority.HIGH, photos, deletedUrls);
+            return deleted == photos.size();
+        }, onFailure);
     }
 
     /**
-     * @return live data that observes DB to know when any change occurred in DB
+     * removes photos from DB whose images were deleted from gallery outside of app
+     * on media lane with low priority so it never delays what user is waiting for
+     * <p>
+     * gallery is only asked which ids it still has so no image is read or decoded
+     * and missing photos are removed in 1 transaction
+     *
+     * @return future of number of photos removed
      */
-    public LiveData<List<Photo>> getAllPhotos() {
-        return mAllPhotos;
+    public Future<Integer> removeMissingPhotos() {
+        return submitWhenReady(mIoExecutors.media(), IoLane.Priority.LOW, () -> {
+            List<Photo> photos = runOnDbLane(IoLane.Priority.LOW, mPhotoDao::getPhotosSnapshot);
+            if (photos.isEmpty())
+                return 0;
+
+            List<String> urls = new ArrayList<>(photos.size());
+            for (Photo photo : photos)
+                urls.add(photo.getUrl());
+
+            Set<String> missingUrls = MediaStoreBatch.findMissing(mApplication.getContentResolver(), urls);
+            if (missingUrls.isEmpty())
+                return 0;
+            return deletePhotosOnDbLane(IoLane.Priority.LOW, photos, missingUrls);
+        });
     }
 
     /**
-     * Async task to insert photo in DB to not block main thread with expensive DB operation
+     * delete rows and thumbnails of photos whose images are gone from gallery in 1 transaction
+     * on DB lane, must not be called from DB lane
+     *
+     * @param priority of DB task
+     * @param photos   read from DB
+     * @param urls     of images that are gone from gallery
+     * @return number of photos deleted
+     * @throws Exception if DB lane was full or delete failed
      */
-    private static class InsertPhotoAsyncTask extends AsyncTask<Photo, Void, Void> {
-
-        // to hold Dao interface to be able to make DB operations
-        private PhotoDao mPhotoDao;
-
-        /**
-         * made to get instance of Dao interface of DB
-         *
-         * @param photoDao that holds interface of DB operations
-         */
-        private InsertPhotoAsyncTask(PhotoDao photoDao) {
-            this.mPhotoDao = photoDao;
+    private int deletePhotosOnDbLane(IoLane.Priority priority, List<Photo> photos, Set<String> urls)
+            throws Exception {
+        List<Photo> gonePhotos = new ArrayList<>(urls.size());
+        List<Integer> goneIds = new ArrayList<>(urls.size());
+        for (Photo photo : photos) {
+            if (urls.contains(photo.getUrl())) {
+                gonePhotos.add(photo);
+                goneIds.add(photo.getId());
+            }
         }
+        if (goneIds.isEmpty())
+            return 0;
 
-        // do DB operation
-        @Override
-        protected Void doInBackground(Photo... photos) {
-            mPhotoDao.insert(photos[0]);
+        runOnDbLane(priority, () -> {
+            mPhotoDao.deletePhotos(goneIds);
             return null;
-        }
+        });
+
+        // their thumbnails are of no use anymore
+        for (Photo photo : gonePhotos)
+            ThumbnailGenerator.delete(photo.getThumbnailPath());
+        return goneIds.size();
     }
 
+    /**
+     * run DB work on DB lane from another lane and wait for it so DB writes stay in order
+     * with rest of DB lane, must not be called from DB lane as it would wait for itself
+     *
+     * @param priority of DB task
+     * @param task     DB work
+     * @param <T>      type of task result
+     * @return result of task
+     * @throws Exception if DB lane was full or task failed
+     */
+    private <T> T runOnDbLane(IoLane.Priority priority, Callable<T> task) throws Exception {
+        try {
+            return mIoExecutors.db().submit(priority, task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
 
     /**
-     * Async task to delete photo from DB to not block main thread with expensive DB operation
+     * makes thumbnail of photo that was stored before thumbnails existed
+     * on media lane with low priority and stores its path in DB on DB lane
+     * <p>
+     * safe to call from main thread as nothing is decoded on it, each photo is only requested once
+     * so calling it on every bind of grid is cheap
+     *
+     * @param photo with no thumbnail yet
      */
-    private static class DeletePhotoAsyncTask extends AsyncTask<Photo, Void, Void> {
+    public void createThumbnail(Photo photo) {
+        if (!mRequestedThumbnails.add(photo.getId()))
+            return;
+
+        Future<?> future = submitWhenReady(mIoExecutors.media(), IoLane.Priority.LOW, () -> {
+            Section section = mMetrics.beginSection(Metrics.THUMBNAIL_CREATE);
+            String path = mThumbnailGenerator.create(Uri.parse(photo.getUrl()), "photo_" + photo.getId());
+            section.end();
+            if (path == null)
+                return;
+            // if DB lane is full thumbnail file is kept and made again on next launch
+            mIoExecutors.db().submit(IoLane.Priority.LOW, () -> mPhotoDao.updateThumbnail(photo.getId(), path));
+        });
 
-        // to hold Dao interface to be able to make DB operations
-        private PhotoDao mPhotoDao;
-        // reference to application context
-        private Application mApplication;
+        // lane was full so allow another try when photo is shown again
+        if (future.isDone())
+            mRequestedThumbnails.remove(photo.getId());
+    }
 
-        /**
-         * made to get instance of Dao interface of DB
-         *
-         * @param photoDao that holds interface of DB operations
-         */
-        private DeletePhotoAsyncTask(PhotoDao photoDao, Application application) {
-            this.mPhotoDao = photoDao;
-            this.mApplication = application;
-        }
+    /**
+     * stores photo camera is about to take on DB lane before camera opens
+     * so photo can be found again if process is killed while camera is open
+     *
+     * @param imageUri  location in gallery where camera writes photo
+     * @param fileName  image file name to be stored into gallery
+     * @param takenAt   time in milliseconds photo was taken
+     * @param weather   weather at time photo was taken
+     * @param onFailure run on main thread if lane was full or job couldn't be stored, may be null
+     * @return future that completes once job is stored
+     */
+    public Future<?> createCaptureJob(Uri imageUri, String fileName, long takenAt, Weather weather,
+                                      Runnable onFailure) {
+        long createdAt = System.currentTimeMillis();
+        return submitUserAction(mIoExecutors.db(), () -> {
+            mCaptureJobDao.insert(new CaptureJob(imageUri.toString(), fileName, takenAt, mGson.toJson(weather),
+                    CaptureJob.STATE_CAMERA, null, createdAt));
+            return true;
+        }, onFailure);
+    }
 
-        // do DB operation
-        @Override
-        protected Void doInBackground(Photo... photos) {
-            // first delete image from gallery
-            try {
-                mApplication.getContentResolver().delete(Uri.parse(photos[0].getUrl()), null, null);
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * marks photo as returned by camera and enqueues persisted background job to process it
+     * on DB lane so it runs after job was stored
+     * <p>
+     * if job couldn't be stored before camera opened it's stored now from details of photo
+     *
+     * @param imageUri  location of photo camera took
+     * @param fileName  image file name to be stored into gallery or null if details of photo
+     *                  were lost with process
+     * @param takenAt   time in milliseconds photo was taken
+     * @param weather   weather at time photo was taken
+     * @param onFailure run on main thread if lane was full or job couldn't be enqueued
+     * @return future that completes once job is enqueued
+     */
+    public Future<?> queueCaptureJob(String imageUri, String fileName, long takenAt, Weather weather,
+                                     Runnable onFailure) {
+        return submitUserAction(mIoExecutors.db(), () -> {
+            if (mCaptureJobDao.getJob(imageUri) != null) {
+                mCaptureJobDao.updateState(imageUri, CaptureJob.STATE_CAPTURED);
+            } else if (fileName != null) {
+                mCaptureJobDao.insert(new CaptureJob(imageUri, fileName, takenAt, mGson.toJson(weather),
+                        CaptureJob.STATE_CAPTURED, null, System.currentTimeMillis()));
+            } else {
+                return false;
             }
+            CaptureWorker.enqueue(mApplication, imageUri);
+            return true;
+        }, onFailure);
+    }
 
-            // delete it from DB
-            mPhotoDao.delete(photos[0]);
-            return null;
-        }
+    /**
+     * removes image camera was gonna write on media lane then job of photo whose camera
+     * was cancelled on DB lane, must be called from main thread
+     * <p>
+     * job stays if gallery refused to delete image so image is removed with stale jobs later
+     *
+     * @param imageUri  location of photo
+     * @param onFailure run on main thread if lane was full or job or image couldn't be removed,
+     *                  may be null
+     * @return future that completes once image and job are removed
+     */
+    public Future<?> discardCaptureJob(String imageUri, Runnable onFailure) {
+        return submitUserAction(mIoExecutors.media(), () -> {
+            if (!deleteFromGallery(imageUri))
+                return false;
+            runOnDbLane(IoLane.Priority.HIGH, () -> {
+                mCaptureJobDao.delete(imageUri);
+                return null;
+            });
+            return true;
+        }, onFailure);
     }
 
     /**
-     * Async task to delete all photos from DB to not block main thread with expensive DB operation
+     * removes job of photo that is given up keeping image camera took
+     * must not be called from main thread
+     * <p>
+     * done on caller's thread and not on a lane so job is never left behind to be resumed again
+     *
+     * @param imageUri location of photo
      */
-    private static class DeleteAllPhotosAsyncTask extends AsyncTask<Void, Void, Void> {
+    public void abandonCaptureJob(String imageUri) {
+        awaitReady();
+        mCaptureJobDao.delete(imageUri);
+    }
 
-        // to hold Dao interface to be able to make DB operations
-        private PhotoDao mPhotoDao;
-        // reference to application context
-        private Application mApplication;
-        // list of photos in DB
-        private List<Photo> mPhotos;
+    /**
+     * must not be called from main thread
+     *
+     * @param imageUri location of photo
+     * @return job of photo or null if it finished or was discarded
+     */
+    public CaptureJob getCaptureJob(String imageUri) {
+        awaitReady();
+        return mCaptureJobDao.getJob(imageUri);
+    }
 
-        /**
-         * made to get instance of Dao interface of DB
-         *
-         * @param photoDao that holds interface of DB operations
-         */
-        private DeleteAllPhotosAsyncTask(PhotoDao photoDao, Application application, List<Photo> photos) {
-            this.mPhotoDao = photoDao;
-            this.mApplication = application;
-            this.mPhotos = photos;
-        }
+    /**
+     * checkpoint that photo is about to be stamped into gallery entry so a stamp cut off by
+     * process death is found and done again into same entry, must not be called from main thread
+     *
+     * @param imageUri  location of photo camera took
+     * @param resultUrl location of gallery entry photo is stamped into
+     */
+    public void markCaptureStamping(String imageUri, String resultUrl) {
+        awaitReady();
+        mCaptureJobDao.markStamping(imageUri, resultUrl);
+    }
 
-        // do DB operation
-        @Override
-        protected Void doInBackground(Void... voids) {
+    /**
+     * checkpoint that photo is stamped and stored so it is never stamped twice
+     * must not be called from main thread
+     *
+     * @param imageUri  location of photo camera took
+     * @param resultUrl location of stored photo
+     */
+    public void markCaptureStamped(String imageUri, String resultUrl) {
+        awaitReady();
+        mCaptureJobDao.markStamped(imageUri, resultUrl);
+    }
 
-            // if no photos in first place just return and do nothing
-            if (mPhotos == null)
-                return null;
+    /**
+     * adds photo and weather stamped on it to history and removes it's job in 1 transaction
+     * so photo is never added twice or lost, must not be called from main thread
+     *
+     * @param imageUri    location of photo camera took
+     * @param photo       to be inserted in DB
+     * @param weatherJson weather stamped on photo serialized as json, photo is stored
+     *                    without weather if null
+     */
+    public void completeCaptureJob(String imageUri, Photo photo, String weatherJson) {
+        awaitReady();
+        Weather weather = weatherJson == null ? null : mGson.fromJson(weatherJson, Weather.class);
+        mPhotoDatabase.runInTransaction(() -> {
+            if (weather == null) {
+                mPhotoDao.insert(photo);
+            } else {
+                mPhotoDao.insert(photo, new WeatherSnapshot(WeatherCache.normalizeCity(weather.getCity()),
+                        weather, photo.getTakenAt()));
+            }
+            mCaptureJobDao.delete(imageUri);
+        });
+    }
 
-            // delete from gallery
-            for (Photo photo : mPhotos) {
-                try {
-                    mApplication.getContentResolver().delete(Uri.parse(photo.getUrl()), null, null);
-                } catch (Exception e) {
-                    e.printStackTrace();
+    /**
+     * enqueues background jobs again for photos process was killed while processing
+     * on DB lane with low priority
+     * <p>
+     * WorkManager already reruns jobs it knows, this also covers photos camera returned
+     * while process was dead and removes gallery entries of cameras that never returned
+     *
+     * @return future of number of photos resumed
+     */
+    public Future<Integer> resumeCaptureJobs() {
+        return submitWhenReady(mIoExecutors.db(), IoLane.Priority.LOW, () -> {
+            int resumed = 0;
+            long now = System.currentTimeMillis();
+            for (CaptureJob job : mCaptureJobDao.getUnfinishedJobs()) {
+                if (!CaptureJob.STATE_CAMERA.equals(job.getState())) {
+                    CaptureWorker.enqueue(mApplication, job.getImageUri());
+                    resumed++;
+                } else if (now - job.getCreatedAt() > STALE_CAMERA_JOB_MILLIS) {
+                    // camera never returned, keep photo if camera wrote it else remove entry
+                    if (hasImageData(job.getImageUri())) {
+                        mCaptureJobDao.updateState(job.getImageUri(), CaptureJob.STATE_CAPTURED);
+                        CaptureWorker.enqueue(mApplication, job.getImageUri());
+                        resumed++;
+                    } else {
+                        mCaptureJobDao.delete(job.getImageUri());
+                        submitWhenReady(mIoExecutors.media(), IoLane.Priority.LOW,
+                                () -> deleteFromGallery(job.getImageUri()));
+                    }
                 }
             }
+            return resumed;
+        });
+    }
 
-            // delete from DB
-            mPhotoDao.deleteAllPhotos();
-            return null;
+    /**
+     * @return live data of photos loaded page by page that observes DB to know when any
+     * change occurred in DB, given at once and filled once DB is open
+     */
+    public LiveData<PagedList<Photo>> getAllPhotos() {
+        return mAllPhotos;
+    }
+
+    /**
+     * must be called from main thread
+     *
+     * @param filter which photos are shown
+     * @return live data of photos matching filter loaded page by page that observes DB,
+     * given at once and filled once DB is open
+     */
+    public LiveData<PagedList<Photo>> getPhotos(HistoryFilter filter) {
+        if (filter.isAll())
+            return mAllPhotos;
+
+        // search is timed on it's own as it's cost depends on words and not on indices
+        boolean search = filter.getType() == HistoryFilter.Type.SEARCH;
+        String initialName = search ? Metrics.PHOTOS_SEARCH_LOAD_INITIAL : Metrics.PHOTOS_FILTERED_LOAD_INITIAL;
+        String rangeName = search ? Metrics.PHOTOS_SEARCH_LOAD_RANGE : Metrics.PHOTOS_FILTERED_LOAD_RANGE;
+
+        MediatorLiveData<PagedList<Photo>> photos = new MediatorLiveData<>();
+        whenReady(() -> {
+            LiveData<PagedList<Photo>> pagedPhotos = new LivePagedListBuilder<>(new TimedDataSourceFactory<>(
+                    getPagedPhotos(filter), initialName, rangeName), mPagedListConfig).build();
+            photos.addSource(pagedPhotos, photos::setValue);
+        });
+        return photos;
+    }
+
+    /**
+     * @param filter which photos are shown, not all photos
+     * @return paged query of filter
+     */
+    private DataSource.Factory<Integer, Photo> getPagedPhotos(HistoryFilter filter) {
+        switch (filter.getType()) {
+            case CITY:
+                return mPhotoDao.getPagedPhotosByCity(filter.getCityKey());
+            case DATE_RANGE:
+                return mPhotoDao.getPagedPhotosByDateRange(filter.getFrom(), filter.getTo());
+            case TEMPERATURE:
+                return mPhotoDao.getPagedPhotosByTemperature(filter.getMinTemperature(),
+                        filter.getMaxTemperature());
+            case SEARCH:
+                return mPhotoDao.searchPhotos(filter.getMatchQuery());
+            default:
+                return mPhotoDao.getPagedPhotos();
+        }
+    }
+
+    /**
+     * must be called from main thread
+     *
+     * @param photo to get weather of
+     * @return live data of photo and weather stamped on it, given at once and filled once DB is open
+     */
+    public LiveData<PhotoWithWeather> getPhotoWithWeather(Photo photo) {
+        MediatorLiveData<PhotoWithWeather> photoWithWeather = new MediatorLiveData<>();
+        whenReady(() -> photoWithWeather.addSource(mPhotoDao.getPhotoWithWeather(photo.getId()),
+                photoWithWeather::setValue));
+        return photoWithWeather;
+    }
+
+    /**
+     * must not be called from main thread
+     *
+     * @param url location of image in gallery
+     * @return true if camera wrote anything into image
+     */
+    private boolean hasImageData(String url) {
+        try (Cursor cursor = mApplication.getContentResolver().query(Uri.parse(url),
+                new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst() && cursor.getLong(0) > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            // can't tell so keep it
+            return true;
+        }
+    }
+
+    /**
+     * delete image from gallery, must not be called from main thread
+     *
+     * @param url location of image in gallery
+     * @return true if image is not in gallery anymore, false if gallery refused to delete it
+     */
+    private boolean deleteFromGallery(String url) {
+        try {
+            mApplication.getContentResolver().delete(Uri.parse(url), null, null);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -0,0 +1,181 @@
+package com.example.photoweather;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Queues network calls and dispatches them only when token bucket allows
+ * so API quota is never exceeded
+ * <p>
+ * Calls the user is waiting for are dispatched before background refreshes
+ * and calls of same priority are dispatched in order they were submitted
+ */
+public class RequestScheduler {
+
+    /**
+     * priority of call, user visible calls are dispatched first
+     */
+    public enum Priority {
+        USER_VISIBLE,
+        BACKGROUND
+    }
+
+    // limits rate of dispatched calls
+    private final TokenBucket mTokenBucket;
+    // used to wake up scheduler once a token is available
+    private final Timer mTimer;
+    // calls waiting for a token ordered by priority then by order of submission
+    private final PriorityQueue<Ticket> mQueue = new PriorityQueue<>();
+
+    // incremented with every submitted call to keep order of submission
+    private long mSequence;
+    // true if timer is already set to dispatch queued calls
+    private boolean mWakeUpScheduled;
+
+    /**
+     * @param tokenBucket limits rate of dispatched calls
+     * @param timer       used to wake up scheduler once a token is available
+     */
+    public RequestScheduler(TokenBucket tokenBucket, Timer timer) {
+        this.mTokenBucket = tokenBucket;
+        this.mTimer = timer;
+    }
+
+    /**
+     * Queue call to be dispatched as soon as quota allows
+     * call is run on calling thread if a token is available now
+     *
+     * @param priority of call
+     * @param call     to run once dispatched
+     * @return ticket that can cancel or promote call while queued
+     */
+    public Ticket submit(Priority priority, Runnable call) {
+        Ticket ticket;
+        synchronized (this) {
+            ticket = new Ticket(priority, mSequence++, call);
+            mQueue.add(ticket);
+        }
+        dispatch();
+        return ticket;
+    }
+
+    /**
+     * Server said quota is exceeded so hold back calls until bucket refills
+     */
+    public void onRateLimited() {
+        mTokenBucket.drain();
+    }
+
+    /**
+     * @return number of calls waiting for quota
+     */
+    public synchronized int getQueueDepth() {
+        return mQueue.size();
+    }
+
+    /**
+     * @return time in milliseconds until next queued call is dispatched, 0 if nothing is waiting
+     */
+    public synchronized long getCurrentWaitMillis() {
+        if (mQueue.isEmpty())
+            return 0;
+        return mTokenBucket.getWaitMillis();
+    }
+
+    /**
+     * Run as many queued calls as quota allows and set timer for rest of them
+     * calls are run outside of lock so they can submit or cancel other calls
+     */
+    void dispatch() {
+        List<Ticket> ready = new ArrayList<>();
+        synchronized (this) {
+            while (!mQueue.isEmpty() && mTokenBucket.tryAcquire())
+                ready.add(mQueue.poll());
+
+            if (!mQueue.isEmpty() && !mWakeUpScheduled) {
+                mWakeUpScheduled = true;
+                mTimer.schedule(this::wakeUp, mTokenBucket.getWaitMillis());
+            }
+        }
+
+        for (Ticket ticket : ready)
+            ticket.mCall.run();
+    }
+
+    /**
+     * called by timer once a token should be available
+     */
+    private void wakeUp() {
+        synchronized (this) {
+            mWakeUpScheduled = false;
+        }
+        dispatch();
+    }
+
+    /**
+     * Timer to wake up scheduler after a delay, can be replaced by fake one in tests
+     */
+    public interface Timer {
+        /**
+         * @param task  to run
+         * @param delay time in milliseconds to wait before running task
+         */
+        void schedule(Runnable task, long delay);
+    }
+
+    /**
+     * Call waiting in queue that can be cancelled or promoted while it waits
+     */
+    public class Ticket implements Comparable<Ticket> {
+
+        // priority of call
+        private Priority mPriority;
+        // order in which call was submitted
+        private final long mSequence;
+        // call to run once dispatched
+        private final Runnable mCall;
+
+        /**
+         * @param priority of call
+         * @param sequence order in which call was submitted
+         * @param call     to run once dispatched
+         */
+        private Ticket(Priority priority, long sequence, Runnable call) {
+            this.mPriority = priority;
+            this.mSequence = sequence;
+            this.mCall = call;
+        }
+
+        /**
+         * Remove call from queue if it was not dispatched yet
+         */
+        public void cancel() {
+            synchronized (RequestScheduler.this) {
+                mQueue.remove(this);
+            }
+        }
+
+        /**
+         * Move call to user visible priority if user started waiting for it
+         */
+        public void promote() {
+            synchronized (RequestScheduler.this) {
+                if (mPriority != Priority.USER_VISIBLE && mQueue.remove(this)) {
+                    mPriority = Priority.USER_VISIBLE;
+                    mQueue.add(this);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = mPriority.compareTo(other.mPriority);
+            if (byPriority != 0)
+                return byPriority;
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.photoweather;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Makes small thumbnails of photos sized to history grid cell and stores them in app storage
+ * so history grid never has to decode full size photos
+ * <p>
+ * Making a thumbnail decodes and encodes images so it is marked for worker threads only,
+ * lint flags any call from main thread
+ */
+public class ThumbnailGenerator {
+
+    // folder inside app storage that holds thumbnails
+    private static final String THUMBNAILS_DIR = "thumbnails";
+    // thumbnails are small so good quality costs little space
+    private static final int THUMBNAIL_QUALITY = 85;
+
+    // folder that holds thumbnails
+    private final File mDirectory;
+    // max width and height of thumbnail in pixels which is size of grid cell
+    private final int mSize;
+    // to read full size images from gallery
+    private final ContentResolver mContentResolver;
+
+    /**
+     * @param context to get app storage, grid cell size and content resolver
+     */
+    public ThumbnailGenerator(Context context) {
+        this.mDirectory = new File(context.getFilesDir(), THUMBNAILS_DIR);
+        this.mSize = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_size);
+        this.mContentResolver = context.getContentResolver();
+    }
+
+    /**
+     * Make thumbnail of image already in memory, must not be called from main thread
+     *
+     * @param source image to make thumbnail of
+     * @param name   unique name of thumbnail file
+     * @return path of thumbnail or null if it couldn't be made
+     */
+    @WorkerThread
+    public String create(Bitmap source, String name) {
+        return create(source, name, ImageOrientation.NORMAL);
+    }
+
+    /**
+     * Make upright thumbnail of image already in memory, must not be called from main thread
+     *
+     * @param source      image to make thumbnail of
+     * @param name        unique name of thumbnail file
+     * @param orientation of image so thumbnail is shown same way as image
+     * @return path of thumbnail or null if it couldn't be made
+     */
+    @WorkerThread
+    public String create(Bitmap source, String name, ImageOrientation orientation) {
+        Bitmap thumbnail = scaleToFit(source, orientation);
+        try {
+            return write(thumbnail, name);
+        } finally {
+            if (thumbnail != source)
+                thumbnail.recycle();
+        }
+    }
+
+    /**
+     * Make thumbnail of image in gallery decoding it at reduced size
+     * must not be called from main thread
+     *
+     * @param imageUri location of image in gallery
+     * @param name     unique name of thumbnail file
+     * @return path of thumbnail or null if it couldn't be made
+     */
+    @WorkerThread
+    public String create(Uri imageUri, String name) {
+        // first only read dimensions of image
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = mContentResolver.openInputStream(imageUri)) {
+            BitmapFactory.decodeStream(input, null, options);
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            return null;
+
+        // then decode skipping pixels so decoded image is just above thumbnail size
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight);
+        Bitmap sampled;
+        try (InputStream input = mContentResolver.openInputStream(imageUri)) {
+            sampled = BitmapFactory.decodeStream(input, null, options);
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (sampled == null)
+            return null;
+
+        try {
+            return create(sampled, name, ImageOrientation.read(mContentResolver, imageUri));
+        } finally {
+            sampled.recycle();
+        }
+    }
+
+    /**
+     * Delete thumbnail file
+     *
+     * @param path of thumbnail, ignored if null
+     */
+    public static void delete(String path) {
+        if (path == null)
+            return;
+        File file = new File(path);
+        if (file.exists() && !file.delete())
+            file.deleteOnExit();
+    }
+
+    /**
+     * @param width  of full image
+     * @param height of full image
+     * @return largest power of 2 that keeps decoded image at least thumbnail size
+     */
+    private int sampleSize(int width, int height) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= mSize && height / (sampleSize * 2) >= mSize)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+
+    /**
+     * @param source      image to scale
+     * @param orientation of image to turn thumbnail upright
+     * @return image scaled down keeping aspect ratio to fit in thumbnail size
+     */
+    private Bitmap scaleToFit(Bitmap source, ImageOrientation orientation) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width <= mSize && height <= mSize && orientation.isUpright())
+            return source;
+
+        float scale = Math.min(1f, Math.min((float) mSize / width, (float) mSize / height));
+        if (orientation.isUpright()) {
+            return Bitmap.createScaledBitmap(source,
+                    Math.max(1, Math.round(width * scale)),
+                    Math.max(1, Math.round(height * scale)),
+                    true);
+        }
+
+        // scale and turn upright in 1 pass
+        Matrix matrix = orientation.getRawToUpright();
+        matrix.postScale(scale, scale);
+        return Bitmap.createBitmap(source, 0, 0, width, height, matrix, true);
+    }
+
+    /**
+     * @param thumbnail image to write
+     * @param name      unique name of thumbnail file
+     * @return path of thumbnail or null if it couldn't be written
+     */
+    private String write(Bitmap thumbnail, String name) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs())
+            return null;
+
+        File file = new File(mDirectory, name + ".jpg");
+        try (OutputStream output = new FileOutputStream(file)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, output);
+            return file.getAbsolutePath();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.photoweather;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Token bucket used to limit how many calls are made in a time window
+ * <p>
+ * Bucket holds up to capacity tokens and refills continuously at given rate
+ * each call takes 1 token and calls with no tokens left have to wait for refill
+ */
+public class TokenBucket {
+
+    // max tokens bucket can hold which is max burst of calls
+    private final int mCapacity;
+    // tokens added every millisecond
+    private final double mRefillPerMilli;
+    // source of current time
+    private final Clock mClock;
+
+    // tokens currently in bucket
+    private double mTokens;
+    // last time tokens were refilled
+    private long mLastRefill;
+
+    /**
+     * @param capacity max burst of calls
+     * @param permits  calls allowed every window
+     * @param window   time window in milliseconds
+     * @param clock    source of current time
+     */
+    public TokenBucket(int capacity, int permits, long window, Clock clock) {
+        this.mCapacity = capacity;
+        this.mRefillPerMilli = (double) permits / window;
+        this.mClock = clock;
+        this.mTokens = capacity;
+        this.mLastRefill = clock.now();
+    }
+
+    /**
+     * Take a token if there is one
+     *
+     * @return true if a token was taken and call can be made now
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (mTokens < 1)
+            return false;
+        mTokens -= 1;
+        return true;
+    }
+
+    /**
+     * @return time in milliseconds until a token is available, 0 if available now
+     */
+    public synchronized long getWaitMillis() {
+        refill();
+        if (mTokens >= 1)
+            return 0;
+        return (long) Math.ceil((1 - mTokens) / mRefillPerMilli);
+    }
+
+    /**
+     * Empty bucket, used when server says quota is exceeded so calls back off for a while
+     */
+    public synchronized void drain() {
+        refill();
+        mTokens = 0;
+    }
+
+    /**
+     * add tokens for time passed since last refill without exceeding capacity
+     */
+    private void refill() {
+        long now = mClock.now();
+        if (now > mLastRefill) {
+            mTokens = Math.min(mCapacity, mTokens + (now - mLastRefill) * mRefillPerMilli);
+            mLastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.photoweather;
+
+import com.example.photoweather.models.CachedWeather;
+import com.example.photoweather.models.Weather;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Two level cache of weather responses keyed by normalized city name
+ * <p>
+ * First level is a bounded in memory LRU that answers instantly
+ * second level is a table in DB that survives app restarts
+ * <p>
+ * Entries older than time to live are still returned but are marked stale so caller
+ * can show them and revalidate them from network
+ */
+public class WeatherCache {
+
+    // number of cities kept in memory before least recently used one is dropped
+    private static final int MEMORY_CAPACITY = 16;
+    // time after which cached weather is stale and needs to be revalidated from network
+    private static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+    // in memory cache ordered by access so eldest entry is least recently used one
+    private final Map<String, Entry> mMemory;
+    // DB interface to read and write cached weather
+    private final WeatherDao mWeatherDao;
+    // used to serialize weather to json to store in DB
+    private final Gson mGson;
+    // source of current time
+    private final Clock mClock;
+    // time after which entry is stale
+    private final long mTimeToLive;
+
+    /**
+     * @param weatherDao DB interface to store weather in
+     * @param gson       to serialize weather to DB
+     * @param clock      source of current time
+     */
+    public WeatherCache(WeatherDao weatherDao, Gson gson, Clock clock) {
+        this(weatherDao, gson, clock, MEMORY_CAPACITY, TIME_TO_LIVE);
+    }
+
+    /**
+     * @param weatherDao     DB interface to store weather in
+     * @param gson           to serialize weather to DB
+     * @param clock          source of current time
+     * @param memoryCapacity max number of cities kept in memory
+     * @param timeToLive     time in milliseconds after which entry is stale
+     */
+    WeatherCache(WeatherDao weatherDao, Gson gson, Clock clock, int memoryCapacity, long timeToLive) {
+        this.mWeatherDao = weatherDao;
+        this.mGson = gson;
+        this.mClock = clock;
+        this.mTimeToLive = timeToLive;
+        this.mMemory = new LinkedHashMap<String, Entry>(memoryCapacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > memoryCapacity;
+            }
+        };
+    }
+
+    /**
+     * Normalize city name so " Cairo", "cairo" and "CAIRO  " share same cache entry
+     *
+     * @param cityName as typed by user
+     * @return key to use in cache
+     */
+    public static String normalizeCity(String cityName) {
+        return cityName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Safe to call from main thread
+     *
+     * @param cityKey normalized city name
+     * @return cached entry in memory or null if not in memory
+     */
+    public synchronized Entry getFromMemory(String cityKey) {
+        return mMemory.get(cityKey);
+    }
+
+    /**
+     * Reads entry from DB and puts it in memory so next lookup is instant
+     * must not be called from main thread
+     *
+     * @param cityKey normalized city name
+     * @return cached entry in DB or null if city was never cached
+     */
+    public Entry getFromDisk(String cityKey) {
+        CachedWeather cachedWeather = mWeatherDao.getWeather(cityKey);
+        if (cachedWeather == null)
+            return null;
+
+        // json could be from an older version of weather model so treat it as not cached
+        Weather weather;
+        try {
+            weather = mGson.fromJson(cachedWeather.getJson(), Weather.class);
+        } catch (JsonParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (weather == null)
+            return null;
+
+        Entry entry = new Entry(weather, cachedWeather.getFetchedAt());
+        synchronized (this) {
+            // don't override a newer entry that was fetched while reading from disk
+            Entry current = mMemory.get(cityKey);
+            if (current == null || current.getFetchedAt() < entry.getFetchedAt())
+                mMemory.put(cityKey, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * City of last successful weather so it can be shown at once on launch and offline
+     * must not be called from main thread
+     *
+     * @return normalized name of city fetched last or null if nothing was ever cached
+     */
+    public String getLatestCityKey() {
+        CachedWeather cachedWeather = mWeatherDao.getLatestWeather();
+        return cachedWeather == null ? null : cachedWeather.getCityKey();
+    }
+
+    /**
+     * Store weather just fetched from network in memory
+     * safe to call from main thread
+     *
+     * @param cityKey normalized city name
+     * @param weather fetched from network
+     * @return entry stored in memory to be persisted later by {@link #persist(String, Entry)}
+     */
+    public synchronized Entry remember(String cityKey, Weather weather) {
+        Entry entry = new Entry(weather, mClock.now());
+        mMemory.put(cityKey, entry);
+        return entry;
+    }
+
+    /**
+     * Store entry in DB
+     * must not be called from main thread
+     *
+     * @param cityKey normalized city name
+     * @param entry   to store in DB
+     */
+    public void persist(String cityKey, Entry entry) {
+        mWeatherDao.insert(new CachedWeather(cityKey, mGson.toJson(entry.getWeather()),
+                entry.getFetchedAt()));
+    }
+
+    /**
+     * @param entry cached entry
+     * @return true if entry is older than time to live and should be revalidated
+     */
+    public boolean isStale(Entry entry) {
+        return mClock.now() - entry.getFetchedAt() >= mTimeToLive;
+    }
+
+    /**
+     * Weather held by cache along with time it was fetched from network
+     */
+    public static class Entry {
+
+        // cached weather
+        private final Weather mWeather;
+        // time in milliseconds weather was fetched from network
+        private final long mFetchedAt;
+
+        /**
+         * @param weather   cached weather
+         * @param fetchedAt time weather was fetched from network
+         */
+        Entry(Weather weather, long fetchedAt) {
+            this.mWeather = weather;
+            this.mFetchedAt = fetchedAt;
+            // UI shows age of weather it is given
+            weather.setFetchedAt(fetchedAt);
+        }
+
+        /**
+         * @return cached weather
+         */
+        public Weather getWeather() {
+            return mWeather;
+        }
+
+        /**
+         * @return time weather was fetched from network
+         */
+        public long getFetchedAt() {
+            return mFetchedAt;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.photoweather;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.photoweather.models.CachedWeather;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Interface of DB to use Room to auto generate weather cache operations
+ */
+@Dao
+public interface WeatherDao {
+
+    /**
+     * @param cachedWeather to insert in DB replacing old weather of same city
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(CachedWeather cachedWeather);
+
+    /**
+     * @param cityKey normalized city name
+     * @return cached weather of city or null if city was never cached
+     */
+    @Query("SELECT * FROM weather_cache_table WHERE cityKey = :cityKey LIMIT 1")
+    CachedWeather getWeather(String cityKey);
+
+    /**
+     * @return weather fetched last of any city or null if nothing was ever cached
+     */
+    @Query("SELECT * FROM weather_cache_table ORDER BY fetchedAt DESC LIMIT 1")
+    CachedWeather getLatestWeather();
+}
@@ -0,0 +1,207 @@
+package com.example.photoweather;
+
+import com.example.photoweather.metrics.Metrics;
+import com.example.photoweather.metrics.Section;
+import com.example.photoweather.models.Weather;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.internal.EverythingIsNonNull;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Makes weather network calls making sure only 1 call is in flight per city
+ * <p>
+ * Concurrent requests for same city share the call that is already in flight
+ * and a request for a different city cancels calls of older cities so their
+ * responses never reach UI after a newer one
+ * <p>
+ * Calls are dispatched through request scheduler so API quota is never exceeded
+ */
+public class WeatherFetcher {
+
+    // http code returned by API when quota is exceeded
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    // API that retrofit generates functions for to make network calls
+    private final WeatherApi mApi;
+    // app id used to get authorization from API
+    private final String mAppId;
+    // holds calls until API quota allows them
+    private final RequestScheduler mScheduler;
+    // calls in flight by normalized city name
+    private final Map<String, Flight> mInFlight = new HashMap<>();
+
+    /**
+     * @param api       generated by retrofit to make network calls
+     * @param appId     used to get authorization from API
+     * @param scheduler holds calls until API quota allows them
+     */
+    public WeatherFetcher(WeatherApi api, String appId, RequestScheduler scheduler) {
+        this.mApi = api;
+        this.mAppId = appId;
+        this.mScheduler = scheduler;
+    }
+
+    /**
+     * Fetch weather of city joining call in flight for same city if there is one
+     * and cancelling calls in flight for other cities
+     *
+     * @param cityKey  normalized city name
+     * @param cityName to query network with
+     * @param priority user visible calls are dispatched before background refreshes
+     * @param listener notified on main thread once response returns
+     */
+    public synchronized void fetch(String cityKey, String cityName,
+                                   RequestScheduler.Priority priority, Listener listener) {
+        // same city already in flight so just wait for its response
+        Flight flight = mInFlight.get(cityKey);
+        if (flight != null) {
+            flight.mListeners.add(listener);
+            // user is now waiting for it so it shouldn't wait behind background refreshes
+            if (priority == RequestScheduler.Priority.USER_VISIBLE)
+                flight.mTicket.promote();
+            return;
+        }
+
+        // newer city supersedes older ones so cancel them
+        cancelAllExcept(cityKey);
+
+        Flight newFlight = new Flight();
+        newFlight.mListeners.add(listener);
+        mInFlight.put(cityKey, newFlight);
+        // wait for quota before making the call
+        newFlight.mTicket = mScheduler.submit(priority, () -> dispatch(cityKey, cityName, newFlight));
+    }
+
+    /**
+     * Make network call of flight once scheduler allows it
+     *
+     * @param cityKey  normalized city name
+     * @param cityName to query network with
+     * @param flight   to make call of
+     */
+    private synchronized void dispatch(String cityKey, String cityName, Flight flight) {
+        // flight may have been superseded right before scheduler dispatched it
+        if (flight.mCancelled)
+            return;
+
+        // get API function first and provide it parameters of app id and city to get info of
+        flight.mCall = mApi.getWeather(mAppId, cityName);
+        // time from call being made until response or failure reaches callback
+        Section section = Metrics.getInstance().beginAsyncSection(Metrics.WEATHER_NETWORK);
+        // then tell retrofit to make the network call and attach the callback for when response returns
+        flight.mCall.enqueue(new Callback<Weather>() {
+            @EverythingIsNonNull
+            @Override
+            public void onResponse(Call<Weather> call, Response<Weather> response) {
+                section.end();
+                if (!response.isSuccessful())
+                    Metrics.getInstance().increment(Metrics.WEATHER_NETWORK_FAILED);
+                // server blocked us so hold back other calls until quota refills
+                if (response.code() == HTTP_TOO_MANY_REQUESTS)
+                    mScheduler.onRateLimited();
+                complete(cityKey, flight, response.isSuccessful() ? response.body() : null);
+            }
+
+            @EverythingIsNonNull
+            @Override
+            public void onFailure(Call<Weather> call, Throwable t) {
+                // cancelled calls were superseded so nobody is waiting for them
+                // and their time says nothing about network
+                if (call.isCanceled()) {
+                    section.cancel();
+                    return;
+                }
+                section.end();
+                Metrics.getInstance().increment(Metrics.WEATHER_NETWORK_FAILED);
+                complete(cityKey, flight, null);
+            }
+        });
+    }
+
+    /**
+     * @return number of calls currently in flight
+     */
+    public synchronized int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    /**
+     * Remove finished flight and notify everyone waiting for it
+     *
+     * @param cityKey normalized city name
+     * @param flight  that finished
+     * @param weather response of flight or null if it failed
+     */
+    private void complete(String cityKey, Flight flight, Weather weather) {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (mInFlight.get(cityKey) == flight)
+                mInFlight.remove(cityKey);
+            listeners = new ArrayList<>(flight.mListeners);
+        }
+        for (Listener listener : listeners)
+            listener.onResult(weather);
+    }
+
+    /**
+     * Cancel all calls in flight except for given city
+     *
+     * @param cityKey normalized city name of call to keep
+     */
+    private void cancelAllExcept(String cityKey) {
+        Iterator<Map.Entry<String, Flight>> iterator = mInFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Flight> entry = iterator.next();
+            if (!entry.getKey().equals(cityKey)) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Listener to get response of weather call
+     */
+    public interface Listener {
+        /**
+         * @param weather response of network call or null if call failed
+         */
+        void onResult(Weather weather);
+    }
+
+    /**
+     * Network call in flight along with everyone waiting for its response
+     */
+    private static class Flight {
+
+        // ticket of call while it waits for quota
+        private RequestScheduler.Ticket mTicket;
+        // call made to network, null while waiting for quota
+        private Call<Weather> mCall;
+        // true once flight is superseded by another city
+        private boolean mCancelled;
+        // listeners waiting for response
+        private final List<Listener> mListeners = new ArrayList<>();
+
+        /**
+         * Cancel flight whether it is still waiting for quota or already made its call
+         */
+        private void cancel() {
+            mCancelled = true;
+            if (mTicket != null)
+                mTicket.cancel();
+            if (mCall != null)
+                mCall.cancel();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.photoweather;
+
+import android.content.res.Resources;
+
+import com.example.photoweather.models.Weather;
+
+import java.util.Locale;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Formats weather values into text shown on screen and drawn on photos
+ * <p>
+ * Kept in 1 place so weather info screen and photo overlay show same text
+ * and formatting can be benchmarked on it's own
+ */
+public class WeatherFormatter {
+
+    // to get format strings
+    private final Resources mResources;
+
+    /**
+     * @param resources to get format strings
+     */
+    public WeatherFormatter(Resources resources) {
+        this.mResources = resources;
+    }
+
+    /**
+     * @param celsius temperature
+     * @return temperature with 2 decimals and unit
+     */
+    public String formatTemperature(double celsius) {
+        return mResources.getString(R.string.temperature_format,
+                String.format(Locale.US, "%.2f", celsius));
+    }
+
+    /**
+     * @param metersPerSecond speed of wind
+     * @return wind speed with unit
+     */
+    public String formatWindSpeed(double metersPerSecond) {
+        return mResources.getString(R.string.wind_speed, String.valueOf(metersPerSecond));
+    }
+
+    /**
+     * @param percentage of cloud or humidity
+     * @return percentage with percent sign
+     */
+    public String formatPercentage(int percentage) {
+        return mResources.getString(R.string.data_with_percentage, percentage);
+    }
+
+    /**
+     * @param weather     to describe
+     * @param withDetails true to add wind and humidity lines
+     * @return lines of weather text drawn on photos, city, description and temperature
+     * then wind and humidity if asked for
+     */
+    public String formatOverlay(Weather weather, boolean withDetails) {
+        String text = weather.getCity() + "\n"
+                + weather.getDescription() + "\n"
+                + formatTemperature(weather.getTemperature());
+        if (!withDetails)
+            return text;
+        return text + "\n"
+                + mResources.getString(R.string.wind_speed_view_text) + " "
+                + formatWindSpeed(weather.getWindSpeed()) + "\n"
+                + mResources.getString(R.string.humidity_view_text) + " "
+                + formatPercentage(weather.getHumidity());
+    }
+}
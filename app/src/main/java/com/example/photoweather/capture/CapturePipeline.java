@@ -0,0 +1,387 @@
+package com.example.photoweather.capture;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.net.Uri;
+
+import com.example.photoweather.BitmapDecoder;
+import com.example.photoweather.BitmapPool;
+import com.example.photoweather.ImageOrientation;
+import com.example.photoweather.JpegExif;
+import com.example.photoweather.MediaStoreBatch;
+import com.example.photoweather.MediaStoreWriter;
+import com.example.photoweather.R;
+import com.example.photoweather.Repository;
+import com.example.photoweather.ThumbnailGenerator;
+import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.Weather;
+import com.google.gson.Gson;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Processes photo taken by camera in background in discrete stages
+ * decode => analyze color => render overlay => encode => persist => share
+ * <p>
+ * Each stage is given to listener so UI can show progress without doing any of the work
+ */
+public class CapturePipeline {
+
+    // image description
+    private static final String IMAGE_DESCRIPTION = "PhotoWeather";
+    // folder inside app storage that holds copies of photos stamped in place until they are stamped
+    private static final String BACKUPS_DIR = "capture_backups";
+
+    // application context to read resources and gallery
+    private final Application mApplication;
+    // repository to store photo in history
+    private final Repository mRepository;
+    // pool to reuse decode bitmaps from
+    private final BitmapPool mBitmapPool;
+    // makes small thumbnail of photo for history grid
+    private final ThumbnailGenerator mThumbnailGenerator;
+    // stores result image in gallery
+    private final MediaStoreWriter mMediaStoreWriter;
+    // picks color of weather text from area it is drawn in
+    private final TextColorAnalyzer mColorAnalyzer;
+    // true to stamp weather back into file camera wrote instead of storing a new copy,
+    // opt in as photo bigger than max photo size is replaced by a smaller one
+    private final boolean mStampInPlace;
+    // weather text laid out for last weather
+    private WeatherOverlay mOverlay;
+    // to read weather of photos serialized as json
+    private final Gson mGson = new Gson();
+
+    // single instance shared by UI and workers so overlay laid out by UI is reused
+    private static CapturePipeline mInstance;
+
+    /**
+     * @param application context to read resources and gallery
+     * @return single instance of pipeline to be used the entire application
+     */
+    public static synchronized CapturePipeline getInstance(Application application) {
+        if (mInstance == null) {
+            mInstance = new CapturePipeline(application, new SampledColorAnalyzer());
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param application   context to read resources and gallery
+     * @param colorAnalyzer picks color of weather text
+     */
+    public CapturePipeline(Application application, TextColorAnalyzer colorAnalyzer) {
+        this.mApplication = application;
+        this.mRepository = Repository.getRepositoryInstance(application);
+        this.mBitmapPool = BitmapPool.getInstance(application);
+        this.mThumbnailGenerator = new ThumbnailGenerator(application);
+        this.mMediaStoreWriter = new MediaStoreWriter(application);
+        this.mColorAnalyzer = colorAnalyzer;
+        this.mStampInPlace = application.getResources().getBoolean(R.bool.stamp_in_place);
+    }
+
+    /**
+     * Listener to every stage photo reaches, called on thread processing photo
+     */
+    public interface ProgressListener {
+        void onProgress(CaptureProgress progress);
+    }
+
+    /**
+     * Process photo, must not be called from main thread
+     * <p>
+     * holds no state of it's own for photo so each photo is an independent job, progress is
+     * checkpointed in capture job table so a photo already stamped before process was killed
+     * is only added to history instead of being stamped twice
+     * <p>
+     * gallery entry photo is stamped into is checkpointed before anything is written to it so a stamp
+     * cut off by process death is done again into same entry, in place mode stamps from a copy of
+     * photo in app storage so photo half overwritten is never decoded
+     *
+     * @param request          photo to process
+     * @param progressListener to tell every stage photo reaches, failure is left to caller
+     *                         so it can decide to retry
+     * @return true if photo is stored and added to history
+     */
+    public boolean process(CaptureRequest request, ProgressListener progressListener) {
+        // every stage and whole photo are timed
+        StageTimer listener = new StageTimer(progressListener);
+        boolean success = false;
+        long jobId = request.getId();
+        ContentResolver resolver = mApplication.getContentResolver();
+        Uri imageUri = request.getImageUri();
+        Bitmap bitmap = null;
+
+        try {
+            String url;
+            String thumbnailPath;
+
+            if (!request.isStamped()) {
+                listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.DECODE));
+
+                // pick image to stamp from and entry to stamp into, image camera took is read as is
+                // unless it's overwritten, then it's copied first as stamp may be cut off half way
+                Uri source = imageUri;
+                Uri target;
+                if (mStampInPlace) {
+                    File backup = getBackupFile(request);
+                    if (!request.isStamping())
+                        backUp(resolver, imageUri, backup);
+                    else if (!backup.exists())
+                        throw new IOException("Copy of photo being stamped in place is gone");
+                    source = Uri.fromFile(backup);
+                    target = imageUri;
+                } else if (request.isStamping() && exists(resolver, request.getResultUrl())) {
+                    // entry made before process was killed is written again instead of making another
+                    target = Uri.parse(request.getResultUrl());
+                } else {
+                    target = mMediaStoreWriter.create(request.getFileName(), IMAGE_DESCRIPTION,
+                            request.getTakenAt());
+                }
+                url = target.toString();
+                // checkpoint before anything is written so a cut off stamp is found and done again
+                mRepository.markCaptureStamping(imageUri.toString(), url);
+
+                // read orientation and metadata kept in image that is overwritten
+                ImageOrientation orientation = ImageOrientation.NORMAL;
+                byte[] exifSegment = null;
+                if (mStampInPlace) {
+                    orientation = ImageOrientation.read(resolver, source);
+                    exifSegment = readExifSegment(resolver, source);
+                }
+
+                // decode source image as mutable bitmap to draw on it directly
+                bitmap = BitmapDecoder.decodeMutable(resolver, source,
+                        mApplication.getResources().getInteger(R.integer.max_photo_size), mBitmapPool);
+
+                // text is laid out upright and mapped onto pixels as they are stored
+                Matrix uprightToRaw = orientation.getUprightToRaw(bitmap.getWidth(), bitmap.getHeight());
+
+                // reuse weather text laid out when weather was picked and pick color
+                // that is visible on area behind it
+                listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.ANALYZE_COLOR));
+                WeatherOverlay overlay = getOverlay(request.getWeatherJson(), null);
+                int width = orientation.isTransposed() ? bitmap.getHeight() : bitmap.getWidth();
+                int height = orientation.isTransposed() ? bitmap.getWidth() : bitmap.getHeight();
+                Rect region = mapRect(overlay.getBounds(width, height), uprightToRaw);
+                int textColor = mColorAnalyzer.getTextColor(bitmap, region);
+
+                // draw weather on image as if image is upright so text reads correctly
+                // once viewer rotates image
+                listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.RENDER_OVERLAY));
+                Canvas canvas = new Canvas(bitmap);
+                canvas.concat(uprightToRaw);
+                overlay.draw(canvas, width, height, textColor);
+
+                // either compress result image back into file camera wrote keeping it's EXIF
+                // or into new gallery entry
+                listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.ENCODE));
+                if (mStampInPlace)
+                    mMediaStoreWriter.overwrite(target, bitmap, exifSegment);
+                else
+                    mMediaStoreWriter.write(target, bitmap);
+                // checkpoint so photo is never stamped twice, copy is of no use after it
+                mRepository.markCaptureStamped(imageUri.toString(), url);
+                if (mStampInPlace)
+                    deleteBackup(request);
+
+                // small thumbnail made from image already in memory
+                // so history grid never decodes full size image
+                thumbnailPath = mThumbnailGenerator.create(bitmap, request.getFileName(), orientation);
+            } else {
+                // stamped before process was killed so only thumbnail is made from stored image
+                url = request.getResultUrl();
+                thumbnailPath = mThumbnailGenerator.create(Uri.parse(url), request.getFileName());
+            }
+
+            // edited copy is stored so delete image camera took, then add photo and it's weather
+            // to history and finish job in 1 transaction so photo is never added twice
+            listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.PERSIST));
+            if (!url.equals(imageUri.toString()))
+                deleteQuietly(resolver, request);
+            Photo photo = new Photo(url, request.getTakenAt());
+            photo.setThumbnailPath(thumbnailPath);
+            mRepository.completeCaptureJob(imageUri.toString(), photo, request.getWeatherJson());
+
+            // location of new image ready to be shared
+            listener.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.SHARE, url));
+            success = true;
+            return true;
+        } catch (Exception e) {
+            // image camera took is kept so photo is not lost, in place mode keeps a copy of it
+            // until it's stamped which is given back by abandon if photo is given up
+            e.printStackTrace();
+            return false;
+        } finally {
+            // give bitmap back to pool to be reused by next photo
+            mBitmapPool.put(bitmap);
+            listener.finish(success);
+        }
+    }
+
+    /**
+     * Photo is given up so put back image camera took if it was being stamped in place
+     * must not be called from main thread
+     * <p>
+     * image may be cut off half way so it's overwritten with copy taken before stamping,
+     * copy is deleted once it's back
+     *
+     * @param request photo that is given up
+     */
+    public void abandon(CaptureRequest request) {
+        File backup = getBackupFile(request);
+        if (!backup.exists())
+            return;
+        ContentResolver resolver = mApplication.getContentResolver();
+        try (InputStream input = resolver.openInputStream(Uri.fromFile(backup));
+             OutputStream output = resolver.openOutputStream(request.getImageUri(), "wt")) {
+            if (input == null || output == null)
+                throw new IOException("Can't put back photo");
+            copy(input, output);
+        } catch (IOException | RuntimeException e) {
+            // copy is kept as it's the only whole image left
+            e.printStackTrace();
+            return;
+        }
+        deleteBackup(request);
+    }
+
+    /**
+     * Lay out weather text ahead of capture so capture only draws it
+     * must not be called from main thread
+     *
+     * @param weather that will be drawn on next photos
+     */
+    public void prepareOverlay(Weather weather) {
+        getOverlay(mGson.toJson(weather), weather);
+    }
+
+    /**
+     * @param weatherJson weather to draw serialized as json
+     * @param weather     same weather if already parsed or null to parse it only if needed
+     * @return overlay laid out for weather, reused while weather doesn't change
+     */
+    private synchronized WeatherOverlay getOverlay(String weatherJson, Weather weather) {
+        if (mOverlay == null || !mOverlay.isFor(weatherJson)) {
+            if (weather == null)
+                weather = mGson.fromJson(weatherJson, Weather.class);
+            mOverlay = new WeatherOverlay(mApplication.getResources(), weather, weatherJson);
+        }
+        return mOverlay;
+    }
+
+    /**
+     * @param rect   in upright coordinates
+     * @param matrix maps upright coordinates to pixels as they are stored
+     * @return area rect covers in pixels as they are stored
+     */
+    private static Rect mapRect(Rect rect, Matrix matrix) {
+        RectF mapped = new RectF(rect);
+        matrix.mapRect(mapped);
+        Rect result = new Rect();
+        mapped.roundOut(result);
+        return result;
+    }
+
+    /**
+     * @param resolver to read image with
+     * @param imageUri location of image camera took
+     * @return EXIF segment of image or null if it has none
+     * @throws IOException if image can't be read
+     */
+    private static byte[] readExifSegment(ContentResolver resolver, Uri imageUri) throws IOException {
+        try (InputStream input = resolver.openInputStream(imageUri)) {
+            if (input == null)
+                throw new IOException("Can't open image");
+            return JpegExif.readExifSegment(new BufferedInputStream(input));
+        }
+    }
+
+    /**
+     * @param request photo stamped in place
+     * @return file in app storage that holds copy of photo while it's stamped in place
+     */
+    private File getBackupFile(CaptureRequest request) {
+        return new File(new File(mApplication.getFilesDir(), BACKUPS_DIR), request.getId() + ".jpg");
+    }
+
+    /**
+     * @param request photo whose copy is of no use anymore
+     */
+    private void deleteBackup(CaptureRequest request) {
+        File backup = getBackupFile(request);
+        if (backup.exists() && !backup.delete())
+            backup.deleteOnExit();
+    }
+
+    /**
+     * Copy image camera took to app storage before it's overwritten, copy is written under
+     * another name first so a copy cut off half way is never taken for a whole one
+     *
+     * @param resolver to read image with
+     * @param imageUri location of image camera took
+     * @param backup   file to copy image to
+     * @throws IOException if image can't be copied
+     */
+    private static void backUp(ContentResolver resolver, Uri imageUri, File backup) throws IOException {
+        File directory = backup.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs())
+            throw new IOException("Can't make folder of photo copies");
+
+        File partial = new File(backup.getPath() + ".partial");
+        try (InputStream input = resolver.openInputStream(imageUri);
+             OutputStream output = new FileOutputStream(partial)) {
+            if (input == null)
+                throw new IOException("Can't open image");
+            copy(input, output);
+        }
+        if (!partial.renameTo(backup))
+            throw new IOException("Can't keep copy of photo");
+    }
+
+    /**
+     * copy all bytes of input to output
+     */
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1)
+            output.write(buffer, 0, read);
+    }
+
+    /**
+     * @param resolver to query gallery with
+     * @param url      location of gallery entry
+     * @return true if entry still exists, pending entries included
+     */
+    private static boolean exists(ContentResolver resolver, String url) {
+        return MediaStoreBatch.findMissing(resolver, Collections.singletonList(url)).isEmpty();
+    }
+
+    /**
+     * delete image camera took as edited copy is stored
+     *
+     * @param resolver to delete image with
+     * @param request  holding location of image camera took
+     */
+    private static void deleteQuietly(ContentResolver resolver, CaptureRequest request) {
+        try {
+            resolver.delete(request.getImageUri(), null, null);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
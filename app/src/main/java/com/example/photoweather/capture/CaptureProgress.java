@@ -0,0 +1,83 @@
+package com.example.photoweather.capture;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Stage a photo reached while being processed, observed by UI through live data
+ */
+public class CaptureProgress {
+
+    /**
+     * stages of processing a photo in order
+     */
+    public enum Stage {
+        // reading photo camera took
+        DECODE,
+        // finding color of text that is visible on photo
+        ANALYZE_COLOR,
+        // drawing weather on photo
+        RENDER_OVERLAY,
+        // compressing photo to store it
+        ENCODE,
+        // storing photo in gallery and history
+        PERSIST,
+        // photo is ready to be shared by UI
+        SHARE,
+        // processing failed
+        FAILED
+    }
+
+    // id of capture job photo belongs to
+    private final long mJobId;
+    // stage photo reached
+    private final Stage mStage;
+    // url of stored photo, only set once photo is stored
+    private final String mImageUrl;
+
+    /**
+     * @param jobId    id of capture job photo belongs to
+     * @param stage    photo reached
+     * @param imageUrl url of stored photo or null if not stored yet
+     */
+    public CaptureProgress(long jobId, Stage stage, String imageUrl) {
+        this.mJobId = jobId;
+        this.mStage = stage;
+        this.mImageUrl = imageUrl;
+    }
+
+    /**
+     * @param jobId id of capture job photo belongs to
+     * @param stage photo reached
+     */
+    public CaptureProgress(long jobId, Stage stage) {
+        this(jobId, stage, null);
+    }
+
+    /**
+     * @return id of capture job photo belongs to
+     */
+    public long getJobId() {
+        return mJobId;
+    }
+
+    /**
+     * @return stage photo reached
+     */
+    public Stage getStage() {
+        return mStage;
+    }
+
+    /**
+     * @return url of stored photo or null if not stored yet
+     */
+    public String getImageUrl() {
+        return mImageUrl;
+    }
+
+    /**
+     * @return true while photo is still being processed
+     */
+    public boolean isRunning() {
+        return mStage.ordinal() < Stage.SHARE.ordinal();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.photoweather.capture;
+
+import android.net.Uri;
+
+import com.example.photoweather.models.CaptureJob;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Holds everything needed to process a photo taken by camera
+ */
+public class CaptureRequest {
+
+    // id of capture job so progress of many photos processed at same time can be told apart
+    private final long mId;
+    // location in gallery where camera wrote photo
+    private final Uri mImageUri;
+    // image file name to be stored into gallery
+    private final String mFileName;
+    // time in milliseconds photo was taken to order photos
+    private final long mTakenAt;
+    // weather at time photo was taken to draw on photo serialized as json
+    private final String mWeatherJson;
+    // stage job reached, one of CaptureJob states
+    private final String mState;
+    // url of gallery entry photo was being stamped into or of stored photo if it was already
+    // stamped before process was killed
+    private final String mResultUrl;
+
+    /**
+     * @param id          of capture job
+     * @param imageUri    location in gallery where camera wrote photo
+     * @param fileName    image file name to be stored into gallery
+     * @param takenAt     time in milliseconds photo was taken
+     * @param weatherJson weather at time photo was taken serialized as json
+     * @param state       stage job reached, one of CaptureJob states
+     * @param resultUrl   url of gallery entry photo was being stamped into or was stored in or null
+     */
+    public CaptureRequest(long id, Uri imageUri, String fileName, long takenAt, String weatherJson,
+                          String state, String resultUrl) {
+        this.mId = id;
+        this.mImageUri = imageUri;
+        this.mFileName = fileName;
+        this.mTakenAt = takenAt;
+        this.mWeatherJson = weatherJson;
+        this.mState = state;
+        this.mResultUrl = resultUrl;
+    }
+
+    /**
+     * @return id of capture job
+     */
+    public long getId() {
+        return mId;
+    }
+
+    /**
+     * @return location in gallery where camera wrote photo
+     */
+    public Uri getImageUri() {
+        return mImageUri;
+    }
+
+    /**
+     * @return image file name to be stored into gallery
+     */
+    public String getFileName() {
+        return mFileName;
+    }
+
+    /**
+     * @return time in milliseconds photo was taken
+     */
+    public long getTakenAt() {
+        return mTakenAt;
+    }
+
+    /**
+     * @return weather at time photo was taken serialized as json
+     */
+    public String getWeatherJson() {
+        return mWeatherJson;
+    }
+
+    /**
+     * @return url of gallery entry photo was being stamped into or was stored in or null
+     */
+    public String getResultUrl() {
+        return mResultUrl;
+    }
+
+    /**
+     * @return true if photo was stamped and stored before process was killed
+     */
+    public boolean isStamped() {
+        return CaptureJob.STATE_STAMPED.equals(mState) && mResultUrl != null;
+    }
+
+    /**
+     * @return true if process was killed while photo was being stamped so stamp may be cut off
+     */
+    public boolean isStamping() {
+        return CaptureJob.STATE_STAMPING.equals(mState) && mResultUrl != null;
+    }
+}
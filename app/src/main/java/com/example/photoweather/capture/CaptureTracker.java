@@ -0,0 +1,111 @@
+package com.example.photoweather.capture;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Tracks progress of photos being processed so UI can show it
+ * <p>
+ * Photos are processed by WorkManager jobs that outlive activities so progress is kept here
+ * for whole application instead of in view model
+ * <p>
+ * Results are kept in a list until UI handles them as UI is stopped while camera is open and
+ * live data only gives it latest value once it's back, so photos of a burst are never lost
+ * <p>
+ * Using Singleton Pattern so workers and UI share same progress
+ */
+public class CaptureTracker {
+
+    // single instance shared by whole application
+    private static CaptureTracker mInstance;
+
+    // results of photos stored or failed that UI didn't handle yet, oldest first, main thread only
+    private final List<CaptureProgress> mUnhandledResults = new ArrayList<>();
+    // same results as live data, a new list on every change
+    private final MutableLiveData<List<CaptureProgress>> mResults = new MutableLiveData<>();
+    // photos still being processed, oldest first
+    private final MutableLiveData<List<CaptureProgress>> mPendingJobs = new MutableLiveData<>();
+    // progress of photos still being processed by job id, guarded by itself
+    private final Map<Long, CaptureProgress> mJobs = new LinkedHashMap<>();
+    // results are only touched on main thread so a result UI handled is never added back
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * private constructor to not allow anyone to instance new tracker
+     */
+    private CaptureTracker() {
+        mPendingJobs.postValue(new ArrayList<>());
+        mResults.postValue(new ArrayList<>());
+    }
+
+    /**
+     * @return single instance of tracker to be used the entire application
+     */
+    public static synchronized CaptureTracker getInstance() {
+        if (mInstance == null) {
+            mInstance = new CaptureTracker();
+        }
+        return mInstance;
+    }
+
+    /**
+     * @return live data of results UI didn't handle yet, oldest first, stage of each is SHARE
+     * once stored or FAILED
+     */
+    public LiveData<List<CaptureProgress>> getResults() {
+        return mResults;
+    }
+
+    /**
+     * @return live data of photos still being processed, oldest first
+     */
+    public LiveData<List<CaptureProgress>> getPendingJobs() {
+        return mPendingJobs;
+    }
+
+    /**
+     * Track stage photo reached, called from any thread
+     *
+     * @param progress of photo
+     */
+    public void onProgress(CaptureProgress progress) {
+        // posted while holding lock so last value posted is always latest list
+        synchronized (mJobs) {
+            if (progress.isRunning())
+                mJobs.put(progress.getJobId(), progress);
+            else
+                mJobs.remove(progress.getJobId());
+            mPendingJobs.postValue(new ArrayList<>(mJobs.values()));
+        }
+
+        // finished photos wait for UI with every other result it didn't handle yet
+        if (!progress.isRunning()) {
+            mMainHandler.post(() -> {
+                mUnhandledResults.add(progress);
+                mResults.setValue(new ArrayList<>(mUnhandledResults));
+            });
+        }
+    }
+
+    /**
+     * UI shared photos or showed failures so results shouldn't be handled again
+     * must be called from main thread
+     *
+     * @param results handled by UI
+     */
+    public void onResultsHandled(List<CaptureProgress> results) {
+        if (results.isEmpty() || !mUnhandledResults.removeAll(results))
+            return;
+        mResults.setValue(new ArrayList<>(mUnhandledResults));
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.photoweather.capture;
+
+import android.app.Application;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.photoweather.IoExecutors;
+import com.example.photoweather.IoLane;
+import com.example.photoweather.Repository;
+import com.example.photoweather.models.Weather;
+
+import java.util.List;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * View model that holds photo being taken and queue of photos processed in background
+ * <p>
+ * Every photo becomes an independent capture job with it's own uri and time stamp stored in DB
+ * before camera opens and processed by WorkManager once camera returns so photos survive process
+ * death, in burst mode camera is opened again right away while earlier photos are still processed
+ * <p>
+ * results of a burst are held until burst ends so they are shared all at once instead of
+ * share sheet interrupting burst after every photo
+ * <p>
+ * survives configuration changes so rotating screen while camera is open or while
+ * photos are processed doesn't lose photos
+ */
+public class CaptureViewModel extends AndroidViewModel {
+
+    // keys to save photo being taken in case activity is destroyed while camera is open
+    private static final String KEY_IMAGE_URI = "capture_image_uri";
+    private static final String KEY_BURST_MODE = "capture_burst_mode";
+    // time in milliseconds to wait before trying again to store a job DB lane turned away
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    // progress of photos processed by background jobs
+    private final CaptureTracker mTracker = CaptureTracker.getInstance();
+    // stores capture jobs and enqueues background jobs to process them
+    private final Repository mRepository;
+    // lays out weather text ahead of capture
+    private final CapturePipeline mPipeline;
+
+    // true to open camera again as soon as a photo is taken
+    private boolean mBurstMode;
+    // true from opening camera in burst mode until user stops taking photos
+    private final MutableLiveData<Boolean> mBurstRunning = new MutableLiveData<>(false);
+    // results UI didn't handle yet, held while burst is running
+    private final MediatorLiveData<List<CaptureProgress>> mResults = new MediatorLiveData<>();
+
+    // location in gallery where camera writes photo being taken, rest of photo is in it's job
+    private Uri mPendingImageUri;
+    // details of photo being taken to store it's job when camera returns if it couldn't be
+    // stored before, lost with process unlike image uri as job is normally stored by then
+    private String mPendingFileName;
+    private long mPendingTakenAt;
+    private Weather mPendingWeather;
+    // to try again to store jobs later
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Constructor to be used by Viewmodleproviders
+     *
+     * @param application context needed to process photos
+     */
+    public CaptureViewModel(@NonNull Application application) {
+        super(application);
+        mRepository = Repository.getRepositoryInstance(application);
+        mPipeline = CapturePipeline.getInstance(application);
+
+        // results are given to UI whenever they change unless a burst is running
+        // and once burst ends
+        mResults.addSource(mTracker.getResults(), results -> updateResults());
+        mResults.addSource(mBurstRunning, running -> updateResults());
+    }
+
+    /**
+     * @return live data of results UI didn't handle yet, oldest first, stage of each is SHARE
+     * once stored or FAILED, not changed while a burst is running
+     */
+    public LiveData<List<CaptureProgress>> getResults() {
+        return mResults;
+    }
+
+    /**
+     * @return live data of photos still being processed, oldest first
+     */
+    public LiveData<List<CaptureProgress>> getPendingJobs() {
+        return mTracker.getPendingJobs();
+    }
+
+    /**
+     * @return true if camera is opened again as soon as a photo is taken
+     */
+    public boolean isBurstMode() {
+        return mBurstMode;
+    }
+
+    /**
+     * Switch burst mode on or off
+     *
+     * @return true if burst mode is now on
+     */
+    public boolean toggleBurstMode() {
+        mBurstMode = !mBurstMode;
+        if (!mBurstMode)
+            endBurst();
+        return mBurstMode;
+    }
+
+    /**
+     * User stopped taking photos of burst or camera couldn't be opened again
+     * so results held during burst are given to UI
+     */
+    public void endBurst() {
+        if (Boolean.TRUE.equals(mBurstRunning.getValue()))
+            mBurstRunning.setValue(false);
+    }
+
+    /**
+     * Lay out weather text in background as soon as weather is picked so capture only draws it
+     *
+     * @param weather picked by user, ignored if null
+     */
+    public void prepareOverlay(Weather weather) {
+        if (weather == null)
+            return;
+        IoExecutors.getInstance().capture()
+                .submit(IoLane.Priority.LOW, () -> mPipeline.prepareOverlay(weather));
+    }
+
+    /**
+     * Remember photo camera is about to take and store it's job before camera opens
+     * <p>
+     * if job can't be stored it's tried once more while camera is still open,
+     * and stored anyway once camera returns
+     *
+     * @param imageUri  location in gallery where camera writes photo
+     * @param fileName  image file name to be stored into gallery
+     * @param takenAt   time in milliseconds photo was taken
+     * @param weather   weather at time photo was taken
+     */
+    public void setPendingCapture(Uri imageUri, String fileName, long takenAt, Weather weather) {
+        mPendingImageUri = imageUri;
+        mPendingFileName = fileName;
+        mPendingTakenAt = takenAt;
+        mPendingWeather = weather;
+        if (mBurstMode && !Boolean.TRUE.equals(mBurstRunning.getValue()))
+            mBurstRunning.setValue(true);
+        mRepository.createCaptureJob(imageUri, fileName, takenAt, weather, () -> mHandler.postDelayed(() -> {
+            // photo was queued or discarded meanwhile which stores or removes job itself
+            if (!imageUri.equals(mPendingImageUri))
+                return;
+            mRepository.createCaptureJob(imageUri, fileName, takenAt, weather, null);
+        }, RETRY_DELAY_MILLIS));
+    }
+
+    /**
+     * Queue photo camera took to be processed by background job
+     * <p>
+     * if job can't be queued photo is failed so UI tells user and stops showing it's progress,
+     * image camera took stays in gallery and job left from before camera opened is resumed on
+     * a later launch
+     *
+     * @return false if there is no photo to process, failures after that are given to results
+     */
+    public boolean processPendingCapture() {
+        if (mPendingImageUri == null)
+            return false;
+
+        long jobId = ContentUris.parseId(mPendingImageUri);
+        mTracker.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.DECODE));
+        // details are only given if weather is known so a job is never stored without weather
+        boolean hasDetails = mPendingWeather != null;
+        mRepository.queueCaptureJob(mPendingImageUri.toString(), hasDetails ? mPendingFileName : null,
+                mPendingTakenAt, mPendingWeather,
+                () -> mTracker.onProgress(new CaptureProgress(jobId, CaptureProgress.Stage.FAILED)));
+        clearPendingCapture();
+        return true;
+    }
+
+    /**
+     * Camera was cancelled so delete job and image file where image was gonna be stored
+     * <p>
+     * tried once more if it can't be done, else job is removed with it's empty image by
+     * resumeCaptureJobs once it's stale
+     */
+    public void discardPendingCapture() {
+        Uri imageUri = mPendingImageUri;
+        clearPendingCapture();
+        // cancelling camera is how user ends a burst
+        endBurst();
+        if (imageUri == null)
+            return;
+
+        String url = imageUri.toString();
+        mRepository.discardCaptureJob(url, () -> mHandler.postDelayed(
+                () -> mRepository.discardCaptureJob(url, null), RETRY_DELAY_MILLIS));
+    }
+
+    /**
+     * UI shared photos or showed failures so results shouldn't be handled again
+     *
+     * @param results handled by UI
+     */
+    public void onResultsHandled(List<CaptureProgress> results) {
+        mTracker.onResultsHandled(results);
+    }
+
+    /**
+     * Save photo being taken in case activity is destroyed while camera is open
+     *
+     * @param outState bundle of activity
+     */
+    public void saveState(Bundle outState) {
+        outState.putBoolean(KEY_BURST_MODE, mBurstMode);
+        if (mPendingImageUri == null)
+            return;
+        outState.putParcelable(KEY_IMAGE_URI, mPendingImageUri);
+    }
+
+    /**
+     * Restore photo being taken if it was lost with process
+     *
+     * @param savedInstanceState bundle of activity
+     */
+    public void restoreState(Bundle savedInstanceState) {
+        if (savedInstanceState == null || mPendingImageUri != null)
+            return;
+        mBurstMode = savedInstanceState.getBoolean(KEY_BURST_MODE);
+        mPendingImageUri = savedInstanceState.getParcelable(KEY_IMAGE_URI);
+    }
+
+    /**
+     * give results to UI unless a burst is running
+     */
+    private void updateResults() {
+        if (Boolean.TRUE.equals(mBurstRunning.getValue()))
+            return;
+        mResults.setValue(mTracker.getResults().getValue());
+    }
+
+    /**
+     * forget photo being taken
+     */
+    private void clearPendingCapture() {
+        mPendingImageUri = null;
+        mPendingFileName = null;
+        mPendingWeather = null;
+    }
+}
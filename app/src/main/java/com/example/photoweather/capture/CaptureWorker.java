@@ -0,0 +1,113 @@
+package com.example.photoweather.capture;
+
+import android.app.Application;
+import android.content.ContentUris;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.photoweather.IoExecutors;
+import com.example.photoweather.IoLane;
+import com.example.photoweather.Repository;
+import com.example.photoweather.models.CaptureJob;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Background job that processes 1 photo stored in capture job table
+ * <p>
+ * WorkManager keeps job across process death so photo camera returned is stamped and added
+ * to history even if app is killed right after camera returns. Actual work runs on capture lane
+ * so no more photos are decoded at same time than lane allows
+ */
+public class CaptureWorker extends Worker {
+
+    // key of input data holding location of photo in gallery
+    private static final String KEY_IMAGE_URI = "image_uri";
+    // tag of all capture jobs
+    private static final String TAG = "capture";
+    // times photo is tried before it is given up
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Constructor used by WorkManager to make worker
+     *
+     * @param context      application context
+     * @param workerParams parameters of job
+     */
+    public CaptureWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Enqueue job to process photo unless it is already enqueued
+     *
+     * @param context  to get WorkManager with
+     * @param imageUri location of photo camera took
+     */
+    public static void enqueue(Context context, String imageUri) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CaptureWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_IMAGE_URI, imageUri).build())
+                .addTag(TAG)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(TAG + "_" + imageUri, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * runs on background thread of WorkManager and waits for capture lane to process photo
+     */
+    @NonNull
+    @Override
+    public Result doWork() {
+        String imageUri = getInputData().getString(KEY_IMAGE_URI);
+        if (imageUri == null)
+            return Result.failure();
+
+        Application application = (Application) getApplicationContext();
+        Repository repository = Repository.getRepositoryInstance(application);
+        CaptureTracker tracker = CaptureTracker.getInstance();
+
+        // job already finished or was discarded
+        CaptureJob job = repository.getCaptureJob(imageUri);
+        if (job == null)
+            return Result.success();
+
+        Uri uri = Uri.parse(imageUri);
+        CaptureRequest request = new CaptureRequest(ContentUris.parseId(uri), uri,
+                job.getFileName(), job.getTakenAt(), job.getWeatherJson(), job.getState(), job.getResultUrl());
+        CapturePipeline pipeline = CapturePipeline.getInstance(application);
+
+        boolean processed;
+        try {
+            tracker.onProgress(new CaptureProgress(request.getId(), CaptureProgress.Stage.DECODE));
+            processed = IoExecutors.getInstance().capture()
+                    .submit(IoLane.Priority.HIGH, () -> pipeline.process(request, tracker::onProgress))
+                    .get();
+        } catch (Exception e) {
+            // capture lane is full, try again later
+            e.printStackTrace();
+            processed = false;
+        }
+
+        if (processed)
+            return Result.success();
+
+        if (getRunAttemptCount() + 1 < MAX_ATTEMPTS)
+            return Result.retry();
+
+        // give up, image camera took is kept in gallery so photo is not lost
+        pipeline.abandon(request);
+        repository.abandonCaptureJob(imageUri);
+        tracker.onProgress(new CaptureProgress(request.getId(), CaptureProgress.Stage.FAILED));
+        return Result.failure();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.photoweather.capture;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import androidx.palette.graphics.Palette;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Old way of picking text color, reverse of dominant color of whole photo found by Palette
+ * <p>
+ * Palette quantizes whole photo so it is slow, only kept to benchmark
+ * {@link SampledColorAnalyzer} against it
+ */
+public class PaletteColorAnalyzer implements TextColorAnalyzer {
+
+    /**
+     * get dominant color of whole photo then reverse it, region is ignored
+     */
+    @Override
+    public int getTextColor(Bitmap bitmap, Rect region) {
+        int dominant = Palette.from(bitmap).generate().getDominantColor(Color.parseColor("#00FFFF"));
+        return TextColors.reverseColor(dominant);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.photoweather.capture;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Fast way of picking text color, only reads a grid of pixels inside area text is drawn in
+ * <p>
+ * At most {@link #SAMPLES_PER_AXIS} rows of region are read and every few pixels of each row
+ * are averaged, so cost doesn't grow with photo size like Palette
+ * <p>
+ * Buffers are reused between photos so analyzer is not thread safe, methods are
+ * synchronized as capture lane processes 1 photo at a time anyway
+ */
+public class SampledColorAnalyzer implements TextColorAnalyzer {
+
+    // max rows and columns of region that are sampled
+    static final int SAMPLES_PER_AXIS = 32;
+
+    // reused buffer that holds one row of region
+    private int[] mRow = new int[0];
+    // reused buffer that holds sampled pixels
+    private final int[] mSamples = new int[SAMPLES_PER_AXIS * SAMPLES_PER_AXIS];
+    // reused rect so region given is not changed
+    private final Rect mBounds = new Rect();
+
+    /**
+     * pick color that is readable on average color of region
+     */
+    @Override
+    public synchronized int getTextColor(Bitmap bitmap, Rect region) {
+        return TextColors.contrastingColor(getBackgroundColor(bitmap, region));
+    }
+
+    /**
+     * Average color of sampled pixels in region
+     *
+     * @param bitmap photo to sample
+     * @param region area to sample, clipped to photo
+     * @return average color or white if region is outside photo
+     */
+    public synchronized int getBackgroundColor(Bitmap bitmap, Rect region) {
+        mBounds.set(region.left, region.top, region.right, region.bottom);
+        if (!mBounds.intersect(0, 0, bitmap.getWidth(), bitmap.getHeight()))
+            return TextColors.WHITE;
+
+        int width = mBounds.width();
+        int height = mBounds.height();
+        // distance between sampled rows and columns
+        int rowStep = step(height);
+        int columnStep = step(width);
+
+        if (mRow.length < width)
+            mRow = new int[width];
+
+        int count = 0;
+        for (int y = mBounds.top; y < mBounds.bottom && count < mSamples.length; y += rowStep) {
+            // 1 call per row instead of 1 call per pixel
+            bitmap.getPixels(mRow, 0, width, mBounds.left, y, width, 1);
+            for (int x = 0; x < width && count < mSamples.length; x += columnStep) {
+                mSamples[count++] = mRow[x];
+            }
+        }
+        return averageColor(mSamples, count);
+    }
+
+    /**
+     * @param length of region side in pixels
+     * @return distance between samples so at most {@link #SAMPLES_PER_AXIS} are taken
+     */
+    static int step(int length) {
+        return Math.max(1, (length + SAMPLES_PER_AXIS - 1) / SAMPLES_PER_AXIS);
+    }
+
+    /**
+     * @param pixels colors to average
+     * @param count  number of colors in pixels to use
+     * @return opaque average color
+     */
+    static int averageColor(int[] pixels, int count) {
+        if (count == 0)
+            return TextColors.WHITE;
+
+        long r = 0, g = 0, b = 0;
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            r += (pixel >> 16) & 0xFF;
+            g += (pixel >> 8) & 0xFF;
+            b += pixel & 0xFF;
+        }
+        return 0xFF000000 | (int) (r / count) << 16 | (int) (g / count) << 8 | (int) (b / count);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.photoweather.capture;
+
+import com.example.photoweather.metrics.Metrics;
+import com.example.photoweather.metrics.Section;
+
+import java.util.Locale;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Times every stage of a photo and whole processing of it while passing stages on to listener
+ * <p>
+ * Stages are reported on thread processing photo so they are timed as nested trace sections
+ */
+class StageTimer implements CapturePipeline.ProgressListener {
+
+    // listener stages are passed on to
+    private final CapturePipeline.ProgressListener mListener;
+    // metrics durations are recorded in
+    private final Metrics mMetrics = Metrics.getInstance();
+    // whole processing of photo
+    private final Section mTotal;
+    // stage photo is in or null once photo left running stages
+    private Section mStage;
+
+    /**
+     * begins timing whole processing of photo
+     *
+     * @param listener stages are passed on to
+     */
+    StageTimer(CapturePipeline.ProgressListener listener) {
+        this.mListener = listener;
+        this.mTotal = mMetrics.beginSection(Metrics.CAPTURE_TOTAL);
+    }
+
+    /**
+     * end previous stage, begin timing new one if photo is still running and pass it on
+     */
+    @Override
+    public void onProgress(CaptureProgress progress) {
+        if (mStage != null)
+            mStage.end();
+        mStage = progress.isRunning()
+                ? mMetrics.beginSection(Metrics.CAPTURE_STAGE
+                + progress.getStage().name().toLowerCase(Locale.US))
+                : null;
+        mListener.onProgress(progress);
+    }
+
+    /**
+     * end timing of photo, failed photos only count as failed so they don't skew durations
+     * must be called on thread processing photo
+     *
+     * @param success true if photo is stored and added to history
+     */
+    void finish(boolean success) {
+        // nested sections end in reverse order
+        if (mStage != null) {
+            if (success)
+                mStage.end();
+            else
+                mStage.cancel();
+            mStage = null;
+        }
+        if (success) {
+            mTotal.end();
+        } else {
+            mTotal.cancel();
+            mMetrics.increment(Metrics.CAPTURE_FAILED);
+        }
+    }
+}
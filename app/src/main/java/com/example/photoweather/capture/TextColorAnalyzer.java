@@ -0,0 +1,22 @@
+package com.example.photoweather.capture;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Picks color of weather text so it is visible on photo
+ * <p>
+ * Kept as interface so fast sampled analyzer can be benchmarked against Palette analyzer
+ * for both speed and chosen color
+ */
+public interface TextColorAnalyzer {
+
+    /**
+     * @param bitmap photo text is drawn on
+     * @param region area of photo text is drawn in
+     * @return color of text to draw
+     */
+    int getTextColor(Bitmap bitmap, Rect region);
+}
@@ -0,0 +1,89 @@
+package com.example.photoweather.capture;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Helper methods to work with colors packed as ARGB ints
+ * <p>
+ * Only uses bit operations so it can be unit tested without Android
+ */
+public final class TextColors {
+
+    // opaque white
+    public static final int WHITE = 0xFFFFFFFF;
+    // opaque black
+    public static final int BLACK = 0xFF000000;
+    // minimum contrast ratio between text and background that is readable (WCAG AA)
+    public static final double MIN_CONTRAST = 4.5;
+
+    /**
+     * no instances, only static helpers
+     */
+    private TextColors() {
+    }
+
+    /**
+     * Helper method to inverse color given
+     *
+     * @param color to inverse
+     * @return color inversed
+     * A = A
+     * R = 255 - R
+     * G = 255 - G
+     * B = 255 - B
+     */
+    public static int reverseColor(int color) {
+        return (color & 0xFF000000) | (~color & 0x00FFFFFF);
+    }
+
+    /**
+     * Relative luminance of color as defined by WCAG
+     *
+     * @param color to get luminance of, alpha is ignored
+     * @return luminance between 0 (black) and 1 (white)
+     */
+    public static double luminance(int color) {
+        double r = linear((color >> 16) & 0xFF);
+        double g = linear((color >> 8) & 0xFF);
+        double b = linear(color & 0xFF);
+        return 0.2126 * r + 0.7152 * g + 0.0722 * b;
+    }
+
+    /**
+     * Contrast ratio between 2 colors as defined by WCAG
+     *
+     * @return ratio between 1 (same luminance) and 21 (black on white)
+     */
+    public static double contrastRatio(int first, int second) {
+        double l1 = luminance(first);
+        double l2 = luminance(second);
+        return (Math.max(l1, l2) + 0.05) / (Math.min(l1, l2) + 0.05);
+    }
+
+    /**
+     * Pick color of text to draw on background
+     * <p>
+     * reverse of background keeps look photos always had, but reverse of mid gray is mid gray
+     * so if it is not readable fall back to black or white whichever is more readable
+     *
+     * @param background color behind text
+     * @return opaque color of text
+     */
+    public static int contrastingColor(int background) {
+        int reversed = reverseColor(background) | 0xFF000000;
+        if (contrastRatio(reversed, background) >= MIN_CONTRAST)
+            return reversed;
+        return contrastRatio(WHITE, background) >= contrastRatio(BLACK, background) ? WHITE : BLACK;
+    }
+
+    /**
+     * convert sRGB channel to linear light
+     *
+     * @param channel 0 - 255
+     * @return 0 - 1
+     */
+    private static double linear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.03928 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.photoweather.capture;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import com.example.photoweather.R;
+import com.example.photoweather.WeatherFormatter;
+import com.example.photoweather.models.Weather;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Weather text drawn on photos, laid out once per weather and reused by every capture
+ * <p>
+ * Text is laid out once at text size and only drawn by capture, so capture never formats strings
+ * or measures glyphs. By default it looks as weather text always did, 3 lines at text size pixels.
+ * Wind and humidity lines and scaling text with photo size are opt in through resources,
+ * extra lines are part of same layout so they add nothing to capture time
+ */
+public class WeatherOverlay {
+
+    // weather text is laid out for serialized as json
+    private final String mWeatherJson;
+    // paint of layout, color is set per photo
+    private final TextPaint mPaint;
+    // laid out weather text
+    private final StaticLayout mLayout;
+    // true to scale text with photo, else it's drawn at text size pixels
+    private final boolean mScaleWithPhoto;
+    // shorter side of photo in pixels text is meant for when scaled with photo
+    private final float mReferenceSize;
+    // distance of text from left of photo
+    private final float mMargin;
+    // distance of top of layout from top of photo so first baseline is margin away from top
+    private final float mTop;
+
+    /**
+     * Lay out weather text, safe to call from any thread
+     *
+     * @param resources   to get strings and sizes
+     * @param weather     to lay out
+     * @param weatherJson same weather serialized as json to know later if overlay is for it
+     */
+    public WeatherOverlay(Resources resources, Weather weather, String weatherJson) {
+        this.mWeatherJson = weatherJson;
+        this.mScaleWithPhoto = resources.getBoolean(R.bool.overlay_scale_with_photo);
+        this.mReferenceSize = resources.getInteger(R.integer.overlay_reference_size);
+        this.mMargin = resources.getInteger(R.integer.overlay_margin);
+
+        // make paint to draw text with
+        mPaint = new TextPaint();
+        mPaint.setTextSize(resources.getInteger(R.integer.text_size));
+        // activate anti alias for better quality
+        mPaint.setAntiAlias(true);
+        // don't underline text
+        mPaint.setUnderlineText(false);
+
+        String text = new WeatherFormatter(resources)
+                .formatOverlay(weather, resources.getBoolean(R.bool.overlay_details));
+        // wide enough so no line wraps
+        int width = (int) Math.ceil(Layout.getDesiredWidth(text, mPaint));
+        // space lines so baselines are line height apart
+        float spacingAdd = resources.getInteger(R.integer.overlay_line_height)
+                - mPaint.getFontMetricsInt(null);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            mLayout = StaticLayout.Builder.obtain(text, 0, text.length(), mPaint, width)
+                    .setIncludePad(false)
+                    .setLineSpacing(spacingAdd, 1f)
+                    .build();
+        } else {
+            mLayout = new StaticLayout(text, mPaint, width, Layout.Alignment.ALIGN_NORMAL,
+                    1f, spacingAdd, false);
+        }
+        mTop = mMargin - mLayout.getLineBaseline(0);
+    }
+
+    /**
+     * Weather is compared as json as photos resumed after process death carry a copy of weather
+     * read from DB not same object UI holds
+     *
+     * @param weatherJson weather to check serialized as json
+     * @return true if overlay was laid out for this weather
+     */
+    public boolean isFor(String weatherJson) {
+        return mWeatherJson.equals(weatherJson);
+    }
+
+    /**
+     * Area of photo text covers so color of text can be picked from pixels behind it
+     *
+     * @param width  of upright photo
+     * @param height of upright photo
+     * @return bounds of text in upright coordinates
+     */
+    public Rect getBounds(int width, int height) {
+        float scale = getScale(width, height);
+        float left = mMargin * scale;
+        float top = mTop * scale;
+        return new Rect((int) Math.floor(left), (int) Math.floor(top),
+                (int) Math.ceil(left + mLayout.getWidth() * scale),
+                (int) Math.ceil(top + mLayout.getHeight() * scale));
+    }
+
+    /**
+     * Draw text scaled to photo size
+     *
+     * @param canvas to draw on in upright coordinates
+     * @param width  of upright photo
+     * @param height of upright photo
+     * @param color  of text
+     */
+    public synchronized void draw(Canvas canvas, int width, int height, int color) {
+        float scale = getScale(width, height);
+        mPaint.setColor(color);
+
+        int save = canvas.save();
+        canvas.translate(mMargin * scale, mTop * scale);
+        canvas.scale(scale, scale);
+        mLayout.draw(canvas);
+        canvas.restoreToCount(save);
+    }
+
+    /**
+     * @return scale of text so it covers same part of photo whatever it's resolution
+     * if scaling with photo is on else 1
+     */
+    private float getScale(int width, int height) {
+        if (!mScaleWithPhoto)
+            return 1f;
+        return Math.min(width, height) / mReferenceSize;
+    }
+}
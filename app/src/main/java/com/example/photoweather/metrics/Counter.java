@@ -0,0 +1,44 @@
+package com.example.photoweather.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Number of times something happened, safe to increment from any thread
+ */
+public class Counter {
+
+    // name shown in metrics dump
+    private final String mName;
+    // times it happened
+    private final AtomicLong mCount = new AtomicLong();
+
+    /**
+     * @param name shown in metrics dump
+     */
+    Counter(String name) {
+        this.mName = name;
+    }
+
+    /**
+     * count 1 more time
+     */
+    public void increment() {
+        mCount.incrementAndGet();
+    }
+
+    /**
+     * @return name shown in metrics dump
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return times it happened
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.photoweather.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Distribution of durations of an operation in buckets growing 25% each
+ * from 10 microseconds to about 2 minutes
+ * <p>
+ * Recording only increments a bucket so it is cheap enough for hot paths, percentiles are
+ * upper bound of bucket they fall in so they are at most 25% above real value
+ */
+public class LatencyHistogram {
+
+    // upper bound of first bucket
+    private static final long FIRST_BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    // every bucket is this much wider than one before it
+    private static final double BUCKET_GROWTH = 1.25;
+    // number of buckets, last one also holds everything longer
+    static final int BUCKET_COUNT = 74;
+    // upper bounds of buckets in nanoseconds, same for every histogram
+    private static final long[] BUCKET_BOUNDS = new long[BUCKET_COUNT];
+
+    static {
+        double bound = FIRST_BUCKET_NANOS;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            BUCKET_BOUNDS[i] = (long) bound;
+            bound *= BUCKET_GROWTH;
+        }
+    }
+
+    // name shown in metrics dump
+    private final String mName;
+    // number of durations in each bucket
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    // number of durations recorded
+    private long mCount;
+    // sum of durations recorded to get mean
+    private long mTotalNanos;
+    // longest duration recorded
+    private long mMaxNanos;
+
+    /**
+     * @param name shown in metrics dump
+     */
+    LatencyHistogram(String name) {
+        this.mName = name;
+    }
+
+    /**
+     * @param nanos duration of operation, negative durations are counted as 0
+     */
+    public synchronized void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        mBuckets[bucketOf(nanos)]++;
+        mCount++;
+        mTotalNanos += nanos;
+        mMaxNanos = Math.max(mMaxNanos, nanos);
+    }
+
+    /**
+     * @return name shown in metrics dump
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return average duration or 0 if nothing was recorded
+     */
+    public synchronized long getMeanNanos() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    /**
+     * @return longest duration recorded
+     */
+    public synchronized long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return duration percentile of recorded durations are shorter than or equal to
+     * never more than longest duration, 0 if nothing was recorded
+     */
+    public synchronized long getPercentileNanos(double percentile) {
+        if (mCount == 0)
+            return 0;
+
+        // rank of duration asked for, at least first one
+        long rank = Math.max(1, (long) Math.ceil(mCount * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank)
+                return Math.min(BUCKET_BOUNDS[i], mMaxNanos);
+        }
+        return mMaxNanos;
+    }
+
+    /**
+     * @return count, mean, p50, p90, p99 and max in milliseconds on 1 line
+     */
+    public synchronized String summary() {
+        return String.format(Locale.US, "count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                mCount, toMillis(getMeanNanos()), toMillis(getPercentileNanos(50)),
+                toMillis(getPercentileNanos(90)), toMillis(getPercentileNanos(99)), toMillis(mMaxNanos));
+    }
+
+    /**
+     * @param nanos duration
+     * @return index of bucket duration falls in
+     */
+    static int bucketOf(long nanos) {
+        // buckets are few so a binary search is not worth it
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (nanos <= BUCKET_BOUNDS[i])
+                return i;
+        }
+        return BUCKET_COUNT - 1;
+    }
+
+    /**
+     * @param nanos duration
+     * @return same duration in milliseconds with fraction
+     */
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
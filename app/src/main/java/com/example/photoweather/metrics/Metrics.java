@@ -0,0 +1,157 @@
+package com.example.photoweather.metrics;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.StatsSnapshot;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Counters and latency histograms of hot paths kept in memory for whole process
+ * <p>
+ * Shown by metrics screen in debug builds and printed in any build by
+ * adb shell dumpsys activity com.example.photoweather/.MainActivity
+ * so devices and builds can be compared
+ * <p>
+ * Using Singleton Pattern so every part of app records into same metrics
+ */
+public class Metrics {
+
+    // names of metrics, dot separated so related ones are printed next to each other
+    public static final String WEATHER_NETWORK = "weather.network";
+    public static final String WEATHER_NETWORK_FAILED = "weather.network.failed";
+    public static final String WEATHER_CACHE_MEMORY_HIT = "weather.cache.memory_hit";
+    public static final String WEATHER_CACHE_DISK_HIT = "weather.cache.disk_hit";
+    public static final String WEATHER_CACHE_MISS = "weather.cache.miss";
+    public static final String WEATHER_CACHE_DISK_READ = "weather.cache.disk_read";
+    public static final String REPOSITORY_INITIALIZE = "repository.initialize";
+    public static final String PHOTOS_LOAD_INITIAL = "photos.load_initial";
+    public static final String PHOTOS_LOAD_RANGE = "photos.load_range";
+    public static final String PHOTOS_FILTERED_LOAD_INITIAL = "photos.filtered.load_initial";
+    public static final String PHOTOS_FILTERED_LOAD_RANGE = "photos.filtered.load_range";
+    public static final String PHOTOS_SEARCH_LOAD_INITIAL = "photos.search.load_initial";
+    public static final String PHOTOS_SEARCH_LOAD_RANGE = "photos.search.load_range";
+    public static final String THUMBNAIL_CREATE = "thumbnail.create";
+    public static final String CAPTURE_TOTAL = "capture.total";
+    public static final String CAPTURE_STAGE = "capture.stage.";
+    public static final String CAPTURE_FAILED = "capture.failed";
+
+    // single instance shared by whole application
+    private static Metrics mInstance;
+
+    // counters by name sorted so dump is stable
+    private final Map<String, Counter> mCounters = new TreeMap<>();
+    // histograms by name sorted so dump is stable
+    private final Map<String, LatencyHistogram> mHistograms = new TreeMap<>();
+    // cookies of asynchronous sections so sections running at same time are told apart in traces
+    private final AtomicInteger mNextCookie = new AtomicInteger();
+
+    /**
+     * private constructor to not allow anyone to instance new metrics
+     */
+    private Metrics() {
+    }
+
+    /**
+     * @return single instance of metrics to be used the entire application
+     */
+    public static synchronized Metrics getInstance() {
+        if (mInstance == null) {
+            mInstance = new Metrics();
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param name of counter
+     * @return counter of name, made on first use
+     */
+    public synchronized Counter counter(String name) {
+        Counter counter = mCounters.get(name);
+        if (counter == null) {
+            counter = new Counter(name);
+            mCounters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * @param name of histogram
+     * @return histogram of name, made on first use
+     */
+    public synchronized LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(name);
+            mHistograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param name of counter to count 1 more time
+     */
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * begin section that is ended on same thread
+     *
+     * @param name of section in traces and of histogram it's duration is recorded in
+     * @return section to end once timed part is done
+     */
+    public Section beginSection(String name) {
+        return new Section(name, histogram(name), -1);
+    }
+
+    /**
+     * begin section that is ended from a callback on any thread
+     *
+     * @param name of section in traces and of histogram it's duration is recorded in
+     * @return section to end once timed part is done
+     */
+    public Section beginAsyncSection(String name) {
+        return new Section(name, histogram(name), mNextCookie.getAndIncrement());
+    }
+
+    /**
+     * print every counter, every histogram with it's percentiles and Picasso cache stats
+     *
+     * @param writer to print to
+     */
+    public void dump(PrintWriter writer) {
+        List<Counter> counters;
+        List<LatencyHistogram> histograms;
+        synchronized (this) {
+            counters = new ArrayList<>(mCounters.values());
+            histograms = new ArrayList<>(mHistograms.values());
+        }
+
+        writer.println("Counters:");
+        for (Counter counter : counters)
+            writer.println("  " + counter.getName() + " " + counter.getCount());
+
+        writer.println("Latency:");
+        for (LatencyHistogram histogram : histograms)
+            writer.println("  " + histogram.getName() + " " + histogram.summary());
+
+        // picasso keeps it's own stats of thumbnails of history grid
+        StatsSnapshot picasso = Picasso.get().getSnapshot();
+        long requests = picasso.cacheHits + picasso.cacheMisses;
+        writer.println("Picasso:");
+        writer.println("  cache hits " + picasso.cacheHits + " misses " + picasso.cacheMisses
+                + " hit rate " + (requests == 0 ? 0 : picasso.cacheHits * 100 / requests) + "%");
+        writer.println("  cache size " + picasso.size / 1024 + "KB of " + picasso.maxSize / 1024 + "KB");
+        writer.println("  decoded " + picasso.originalBitmapCount + " average "
+                + picasso.averageOriginalBitmapSize / 1024 + "KB, transformed "
+                + picasso.transformedBitmapCount + " average "
+                + picasso.averageTransformedBitmapSize / 1024 + "KB");
+    }
+}
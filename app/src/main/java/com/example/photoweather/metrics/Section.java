@@ -0,0 +1,84 @@
+package com.example.photoweather.metrics;
+
+import android.os.SystemClock;
+
+import androidx.tracing.Trace;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Timed part of a hot path that shows in system traces and records it's duration once ended
+ * <p>
+ * Sections are either synchronous, ended on thread that began them, or asynchronous,
+ * ended from a callback on any thread
+ */
+public class Section {
+
+    // name of section in traces
+    private final String mName;
+    // histogram duration is recorded in
+    private final LatencyHistogram mHistogram;
+    // cookie telling asynchronous sections of same name apart, -1 for synchronous section
+    private final int mCookie;
+    // time section began
+    private final long mStartNanos;
+    // true once section ended so ending it twice does nothing
+    private boolean mEnded;
+
+    /**
+     * begins section right away
+     *
+     * @param name      of section in traces
+     * @param histogram duration is recorded in
+     * @param cookie    of asynchronous section or -1 for synchronous section
+     */
+    Section(String name, LatencyHistogram histogram, int cookie) {
+        this.mName = name;
+        this.mHistogram = histogram;
+        this.mCookie = cookie;
+        if (cookie < 0)
+            Trace.beginSection(name);
+        else
+            Trace.beginAsyncSection(name, cookie);
+        this.mStartNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * end section and record it's duration, synchronous sections must be ended
+     * on thread that began them
+     *
+     * @return duration of section in nanoseconds or 0 if it was already ended
+     */
+    public long end() {
+        synchronized (this) {
+            if (mEnded)
+                return 0;
+            mEnded = true;
+        }
+
+        long nanos = SystemClock.elapsedRealtimeNanos() - mStartNanos;
+        if (mCookie < 0)
+            Trace.endSection();
+        else
+            Trace.endAsyncSection(mName, mCookie);
+        mHistogram.record(nanos);
+        return nanos;
+    }
+
+    /**
+     * end section without recording it's duration as timed part was abandoned
+     * like a cancelled call, synchronous sections must be cancelled on thread that began them
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (mEnded)
+                return;
+            mEnded = true;
+        }
+
+        if (mCookie < 0)
+            Trace.endSection();
+        else
+            Trace.endAsyncSection(mName, mCookie);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.photoweather.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.PositionalDataSource;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Wraps data source factory Room generates for paged queries so time of every page query
+ * is recorded, Room runs query and hands rows to callback before load returns
+ *
+ * @param <T> type of rows
+ */
+public class TimedDataSourceFactory<T> extends DataSource.Factory<Integer, T> {
+
+    // factory Room generates
+    private final DataSource.Factory<Integer, T> mFactory;
+    // name of first page query
+    private final String mInitialName;
+    // name of every next page query
+    private final String mRangeName;
+
+    /**
+     * @param factory     Room generates for a paged query, it's data sources are positional
+     * @param initialName of section timing first page query
+     * @param rangeName   of section timing every next page query
+     */
+    public TimedDataSourceFactory(DataSource.Factory<Integer, T> factory, String initialName, String rangeName) {
+        this.mFactory = factory;
+        this.mInitialName = initialName;
+        this.mRangeName = rangeName;
+    }
+
+    @NonNull
+    @Override
+    public DataSource<Integer, T> create() {
+        return new TimedDataSource<>((PositionalDataSource<T>) mFactory.create(), mInitialName, mRangeName);
+    }
+
+    /**
+     * Positional data source that times data source it wraps and shares it's invalidation
+     *
+     * @param <T> type of rows
+     */
+    private static class TimedDataSource<T> extends PositionalDataSource<T> {
+
+        // data source Room generates
+        private final PositionalDataSource<T> mDelegate;
+        // name of first page query
+        private final String mInitialName;
+        // name of every next page query
+        private final String mRangeName;
+
+        /**
+         * @param delegate    data source Room generates
+         * @param initialName of section timing first page query
+         * @param rangeName   of section timing every next page query
+         */
+        private TimedDataSource(PositionalDataSource<T> delegate, String initialName, String rangeName) {
+            this.mDelegate = delegate;
+            this.mInitialName = initialName;
+            this.mRangeName = rangeName;
+            // Room invalidates it's data source once table changes so paged list loads again
+            delegate.addInvalidatedCallback(this::invalidate);
+        }
+
+        @Override
+        public void loadInitial(@NonNull LoadInitialParams params, @NonNull LoadInitialCallback<T> callback) {
+            Section section = Metrics.getInstance().beginSection(mInitialName);
+            try {
+                mDelegate.loadInitial(params, callback);
+            } finally {
+                section.end();
+            }
+        }
+
+        @Override
+        public void loadRange(@NonNull LoadRangeParams params, @NonNull LoadRangeCallback<T> callback) {
+            Section section = Metrics.getInstance().beginSection(mRangeName);
+            try {
+                mDelegate.loadRange(params, callback);
+            } finally {
+                section.end();
+            }
+        }
+
+        @Override
+        public void invalidate() {
+            super.invalidate();
+            // invalidating an invalid data source does nothing so this doesn't loop
+            mDelegate.invalidate();
+        }
+
+        @Override
+        public boolean isInvalid() {
+            return super.isInvalid() || mDelegate.isInvalid();
+        }
+    }
+}
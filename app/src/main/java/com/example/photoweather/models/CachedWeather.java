@@ -0,0 +1,61 @@
+package com.example.photoweather.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Hold weather response cached on disk with table name "weather_cache_table"
+ * so same city doesn't need a network call every time it is looked up
+ */
+@Entity(tableName = "weather_cache_table")
+public class CachedWeather {
+
+    // normalized city name used as key of cache
+    @PrimaryKey
+    @NonNull
+    private String cityKey;
+
+    // weather object serialized as json
+    private String json;
+
+    // time in milliseconds in which weather was fetched from network
+    private long fetchedAt;
+
+    /**
+     * Constructor used by weather cache and Room to make objects
+     *
+     * @param cityKey   normalized city name
+     * @param json      weather serialized as json
+     * @param fetchedAt time weather was fetched from network
+     */
+    public CachedWeather(@NonNull String cityKey, String json, long fetchedAt) {
+        this.cityKey = cityKey;
+        this.json = json;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * @return normalized city name
+     */
+    @NonNull
+    public String getCityKey() {
+        return cityKey;
+    }
+
+    /**
+     * @return weather serialized as json
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * @return time weather was fetched from network
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
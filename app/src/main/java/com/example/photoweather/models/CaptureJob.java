@@ -0,0 +1,121 @@
+package com.example.photoweather.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Photo being taken or processed with table name "capture_job_table"
+ * <p>
+ * Stored before camera opens so a photo is never lost if process is killed while camera is open
+ * or while photo is processed, row is removed in same transaction photo is added to history
+ */
+@Entity(tableName = "capture_job_table")
+public class CaptureJob {
+
+    // camera is open and writing photo
+    public static final String STATE_CAMERA = "camera";
+    // camera returned photo and it is waiting to be processed
+    public static final String STATE_CAPTURED = "captured";
+    // weather is being written into gallery entry in result url, it may be cut off half way
+    public static final String STATE_STAMPING = "stamping";
+    // weather is drawn and photo is stored in gallery, only adding it to history is left
+    public static final String STATE_STAMPED = "stamped";
+
+    // location in gallery where camera writes photo, unique per photo
+    @PrimaryKey
+    @NonNull
+    private String imageUri;
+
+    // image file name to be stored into gallery
+    private String fileName;
+
+    // time in milliseconds photo was taken to order photos
+    private long takenAt;
+
+    // weather at time photo was taken serialized as json
+    private String weatherJson;
+
+    // stage job reached, one of STATE constants
+    private String state;
+
+    // url of gallery entry photo is being stamped into or of stored photo once job is stamped
+    private String resultUrl;
+
+    // time in milliseconds job was made
+    private long createdAt;
+
+    /**
+     * Constructor used by repository and Room to make objects
+     *
+     * @param imageUri    location in gallery where camera writes photo
+     * @param fileName    image file name to be stored into gallery
+     * @param takenAt     time in milliseconds photo was taken
+     * @param weatherJson weather at time photo was taken serialized as json
+     * @param state       stage job reached
+     * @param resultUrl   url of stored photo or null if not stored yet
+     * @param createdAt   time job was made
+     */
+    public CaptureJob(@NonNull String imageUri, String fileName, long takenAt, String weatherJson,
+                      String state, String resultUrl, long createdAt) {
+        this.imageUri = imageUri;
+        this.fileName = fileName;
+        this.takenAt = takenAt;
+        this.weatherJson = weatherJson;
+        this.state = state;
+        this.resultUrl = resultUrl;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return location in gallery where camera writes photo
+     */
+    @NonNull
+    public String getImageUri() {
+        return imageUri;
+    }
+
+    /**
+     * @return image file name to be stored into gallery
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return time in milliseconds photo was taken
+     */
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    /**
+     * @return weather at time photo was taken serialized as json
+     */
+    public String getWeatherJson() {
+        return weatherJson;
+    }
+
+    /**
+     * @return stage job reached
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * @return url of stored photo or null if not stored yet
+     */
+    public String getResultUrl() {
+        return resultUrl;
+    }
+
+    /**
+     * @return time job was made
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.photoweather.models;
+
+import androidx.annotation.NonNull;
+
+import com.example.photoweather.WeatherCache;
+
+import java.util.Locale;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Which photos of history are shown, all of them or only photos of a city,
+ * taken within a date range, within a temperature band or matching words searched for
+ * <p>
+ * Immutable so it can be compared to know if history needs to be loaded again,
+ * every kind of filter has it's own query that is served by an index
+ * <p>
+ * Filters are equal when they load same photos, so city filters are compared by their
+ * normalized city and not by how user typed it
+ */
+public class HistoryFilter {
+
+    /**
+     * kinds of filter, each maps to 1 query
+     */
+    public enum Type {
+        ALL, CITY, DATE_RANGE, TEMPERATURE, SEARCH
+    }
+
+    // filter that shows every photo
+    private static final HistoryFilter ALL = new HistoryFilter(Type.ALL, null, null, 0, 0, 0, 0, null);
+    // words searched for beyond this many are ignored to keep search fast
+    private static final int MAX_SEARCH_WORDS = 8;
+
+    // kind of filter
+    private final Type mType;
+    // city photos were taken in as user typed it to be shown, only for city filter
+    private final String mCity;
+    // normalized city matched against weather of photos, only for city filter
+    private final String mCityKey;
+    // first and last time in milliseconds photos were taken, both included, only for date range filter
+    private final long mFrom;
+    private final long mTo;
+    // lowest and highest temperature in °C of photos, both included, only for temperature filter
+    private final double mMinTemperature;
+    private final double mMaxTemperature;
+    // full text query of words searched for, only for search filter
+    private final String mMatchQuery;
+
+    /**
+     * private so filters are only made by factory methods that fill fields of their kind
+     */
+    private HistoryFilter(Type type, String city, String cityKey, long from, long to,
+                          double minTemperature, double maxTemperature, String matchQuery) {
+        this.mType = type;
+        this.mCity = city;
+        this.mCityKey = cityKey;
+        this.mFrom = from;
+        this.mTo = to;
+        this.mMinTemperature = minTemperature;
+        this.mMaxTemperature = maxTemperature;
+        this.mMatchQuery = matchQuery;
+    }
+
+    /**
+     * @return filter that shows every photo
+     */
+    public static HistoryFilter all() {
+        return ALL;
+    }
+
+    /**
+     * @param city photos were taken in, case and extra spaces are ignored
+     * @return filter that shows photos of city only
+     */
+    public static HistoryFilter byCity(@NonNull String city) {
+        return new HistoryFilter(Type.CITY, city, WeatherCache.normalizeCity(city), 0, 0, 0, 0, null);
+    }
+
+    /**
+     * @param from first time in milliseconds photos were taken
+     * @param to   last time in milliseconds photos were taken
+     * @return filter that shows photos taken within range, both ends included
+     */
+    public static HistoryFilter byDateRange(long from, long to) {
+        return new HistoryFilter(Type.DATE_RANGE, null, null, Math.min(from, to), Math.max(from, to), 0, 0, null);
+    }
+
+    /**
+     * @param minTemperature lowest temperature in °C
+     * @param maxTemperature highest temperature in °C
+     * @return filter that shows photos taken within temperature band, both ends included
+     */
+    public static HistoryFilter byTemperature(double minTemperature, double maxTemperature) {
+        return new HistoryFilter(Type.TEMPERATURE, null, null, 0, 0,
+                Math.min(minTemperature, maxTemperature), Math.max(minTemperature, maxTemperature), null);
+    }
+
+    /**
+     * every word is matched as start of a word in city or weather so results show up while
+     * user is still typing, photos have to match all words
+     *
+     * @param text as typed by user
+     * @return filter that shows photos matching words of text or all photos if text has no words
+     */
+    public static HistoryFilter bySearch(@NonNull String text) {
+        String matchQuery = toMatchQuery(text);
+        if (matchQuery.isEmpty())
+            return ALL;
+        return new HistoryFilter(Type.SEARCH, null, null, 0, 0, 0, 0, matchQuery);
+    }
+
+    /**
+     * Only letters and digits are kept so nothing user types is read as full text syntax
+     *
+     * @param text as typed by user
+     * @return full text query matching start of every word of text or empty if text has no words
+     */
+    static String toMatchQuery(String text) {
+        StringBuilder matchQuery = new StringBuilder();
+        int words = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            if (words == MAX_SEARCH_WORDS)
+                break;
+            if (words > 0)
+                matchQuery.append(' ');
+            matchQuery.append(word).append('*');
+            words++;
+        }
+        return matchQuery.toString();
+    }
+
+    /**
+     * @return kind of filter
+     */
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * @return city photos were taken in as user typed it or null if not a city filter
+     */
+    public String getCity() {
+        return mCity;
+    }
+
+    /**
+     * @return normalized city photos were taken in or null if not a city filter
+     */
+    public String getCityKey() {
+        return mCityKey;
+    }
+
+    /**
+     * @return first time in milliseconds photos were taken
+     */
+    public long getFrom() {
+        return mFrom;
+    }
+
+    /**
+     * @return last time in milliseconds photos were taken
+     */
+    public long getTo() {
+        return mTo;
+    }
+
+    /**
+     * @return lowest temperature in °C
+     */
+    public double getMinTemperature() {
+        return mMinTemperature;
+    }
+
+    /**
+     * @return highest temperature in °C
+     */
+    public double getMaxTemperature() {
+        return mMaxTemperature;
+    }
+
+    /**
+     * @return full text query of words searched for or null if not a search filter
+     */
+    public String getMatchQuery() {
+        return mMatchQuery;
+    }
+
+    /**
+     * @return true if filter shows every photo
+     */
+    public boolean isAll() {
+        return mType == Type.ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof HistoryFilter))
+            return false;
+        HistoryFilter other = (HistoryFilter) o;
+        return mType == other.mType
+                && (mCityKey == null ? other.mCityKey == null : mCityKey.equals(other.mCityKey))
+                && mFrom == other.mFrom
+                && mTo == other.mTo
+                && Double.compare(mMinTemperature, other.mMinTemperature) == 0
+                && Double.compare(mMaxTemperature, other.mMaxTemperature) == 0
+                && (mMatchQuery == null ? other.mMatchQuery == null : mMatchQuery.equals(other.mMatchQuery));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mType.hashCode();
+        result = 31 * result + (mCityKey == null ? 0 : mCityKey.hashCode());
+        result = 31 * result + Long.hashCode(mFrom);
+        result = 31 * result + Long.hashCode(mTo);
+        result = 31 * result + Double.hashCode(mMinTemperature);
+        result = 31 * result + Double.hashCode(mMaxTemperature);
+        result = 31 * result + (mMatchQuery == null ? 0 : mMatchQuery.hashCode());
+        return result;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.photoweather.models;
 
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
@@ -9,7 +10,8 @@ import androidx.room.PrimaryKey;
  * <p>
  * Hold photo object and representation in DB with table name "photo_table"
  */
-@Entity(tableName = "photo_table")
+@Entity(tableName = "photo_table",
+        indices = {@Index(value = "takenAt"), @Index(value = "url", unique = true)})
 public class Photo {
 
     // primary key for DB
@@ -19,19 +21,22 @@ public class Photo {
     // url which holds location of photo in device
     private String url;
 
-    // time in which photo was taken to order photos from DB
-    private String timeStamp;
+    // time in milliseconds photo was taken, indexed to page photos newest first without sorting
+    private long takenAt;
+
+    // path of small thumbnail of photo shown in history grid, null if not generated yet
+    private String thumbnailPath;
 
     /**
      * Constructor to use in Main Activity when making photo objects and
      * Room also uses it to make objects
      *
-     * @param url       location of photo in device
-     * @param timeStamp time photo was taken to order photos from DB
+     * @param url     location of photo in device
+     * @param takenAt time in milliseconds photo was taken to order photos from DB
      */
-    public Photo(String url, String timeStamp) {
+    public Photo(String url, long takenAt) {
         this.url = url;
-        this.timeStamp = timeStamp;
+        this.takenAt = takenAt;
     }
 
     /**
@@ -58,9 +63,23 @@ public class Photo {
     }
 
     /**
-     * @return time stamp of photo
+     * @return time in milliseconds photo was taken
+     */
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    /**
+     * @param thumbnailPath path of small thumbnail of photo
+     */
+    public void setThumbnailPath(String thumbnailPath) {
+        this.thumbnailPath = thumbnailPath;
+    }
+
+    /**
+     * @return path of small thumbnail of photo or null if not generated yet
      */
-    public String getTimeStamp() {
-        return timeStamp;
+    public String getThumbnailPath() {
+        return thumbnailPath;
     }
 }
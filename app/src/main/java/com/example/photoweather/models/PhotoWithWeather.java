@@ -0,0 +1,36 @@
+package com.example.photoweather.models;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Photo together with weather stamped on it, loaded by Room from both tables
+ * <p>
+ * Photos stored before weather was kept as data have no weather
+ */
+public class PhotoWithWeather {
+
+    // photo from photo table
+    @Embedded
+    public Photo photo;
+
+    // weather of photo or null if photo was stored before weather was kept
+    @Relation(parentColumn = "id", entityColumn = "photoId")
+    public WeatherSnapshot weather;
+
+    /**
+     * @return photo from photo table
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    /**
+     * @return weather of photo or null if photo was stored before weather was kept
+     */
+    public WeatherSnapshot getWeather() {
+        return weather;
+    }
+}
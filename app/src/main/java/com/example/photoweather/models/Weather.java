@@ -31,6 +31,10 @@ public class Weather {
     @SerializedName("clouds")
     private Cloud cloud;
 
+    // time in milliseconds weather was fetched from network, not part of json
+    // so weather drawn on photos and stored in DB is same whenever it was fetched
+    private transient long fetchedAt;
+
     /**
      * @return city name
      */
@@ -101,4 +105,18 @@ public class Weather {
         return this.main.getHumidity();
     }
 
+    /**
+     * @return time in milliseconds weather was fetched from network or 0 if unknown
+     */
+    public long getFetchedAt() {
+        return this.fetchedAt;
+    }
+
+    /**
+     * @param fetchedAt time in milliseconds weather was fetched from network
+     */
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
 }
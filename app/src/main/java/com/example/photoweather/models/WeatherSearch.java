@@ -0,0 +1,61 @@
+package com.example.photoweather.models;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Full text index of weather stamped on photos with table name "weather_search_table"
+ * so photos are found by words of their city and weather
+ * <p>
+ * Index only holds words, text itself is read from weather snapshot table and Room keeps
+ * index in sync with triggers on it, row id of every entry is id of it's photo
+ */
+@Fts4(contentEntity = WeatherSnapshot.class)
+@Entity(tableName = "weather_search_table")
+public class WeatherSearch {
+
+    // city name as shown on photo
+    private String city;
+
+    // weather main description
+    private String main;
+
+    // weather detailed description
+    private String description;
+
+    /**
+     * Constructor used by Room to make objects
+     *
+     * @param city        city name as shown on photo
+     * @param main        weather main description
+     * @param description weather detailed description
+     */
+    public WeatherSearch(String city, String main, String description) {
+        this.city = city;
+        this.main = main;
+        this.description = description;
+    }
+
+    /**
+     * @return city name as shown on photo
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * @return weather main description
+     */
+    public String getMain() {
+        return main;
+    }
+
+    /**
+     * @return weather detailed description
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.photoweather.models;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Hold weather stamped on a photo as data with table name "weather_snapshot_table"
+ * so history can be filtered by weather and not only shown as pixels
+ * <p>
+ * Every photo has at most 1 snapshot keyed by it's id and deleted with it, time photo was taken
+ * is copied here so filters read matching photos newest first straight from an index
+ */
+@Entity(tableName = "weather_snapshot_table",
+        foreignKeys = @ForeignKey(entity = Photo.class, parentColumns = "id", childColumns = "photoId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {@Index(value = {"cityKey", "takenAt"}), @Index(value = "temperature")})
+public class WeatherSnapshot {
+
+    // id of photo weather was stamped on
+    @PrimaryKey
+    private int photoId;
+
+    // normalized city name so filter by city ignores case and spaces
+    private String cityKey;
+
+    // city name as shown on photo
+    private String city;
+
+    // weather main description
+    private String main;
+
+    // weather detailed description
+    private String description;
+
+    // temperature in °C
+    private double temperature;
+
+    // wind speed in meter/sec
+    private double windSpeed;
+
+    // clouds percentage
+    private int cloudiness;
+
+    // humidity in percentage
+    private int humidity;
+
+    // time in milliseconds photo was taken, same as it's photo
+    private long takenAt;
+
+    /**
+     * Constructor used by Room to make objects
+     *
+     * @param photoId     id of photo weather was stamped on
+     * @param cityKey     normalized city name
+     * @param city        city name as shown on photo
+     * @param main        weather main description
+     * @param description weather detailed description
+     * @param temperature temperature in °C
+     * @param windSpeed   wind speed in meter/sec
+     * @param cloudiness  clouds percentage
+     * @param humidity    humidity in percentage
+     * @param takenAt     time in milliseconds photo was taken
+     */
+    public WeatherSnapshot(int photoId, String cityKey, String city, String main, String description,
+                           double temperature, double windSpeed, int cloudiness, int humidity, long takenAt) {
+        this.photoId = photoId;
+        this.cityKey = cityKey;
+        this.city = city;
+        this.main = main;
+        this.description = description;
+        this.temperature = temperature;
+        this.windSpeed = windSpeed;
+        this.cloudiness = cloudiness;
+        this.humidity = humidity;
+        this.takenAt = takenAt;
+    }
+
+    /**
+     * Constructor to use when photo is stored, id is set once photo is inserted
+     *
+     * @param cityKey normalized city name
+     * @param weather stamped on photo
+     * @param takenAt time in milliseconds photo was taken
+     */
+    @Ignore
+    public WeatherSnapshot(String cityKey, Weather weather, long takenAt) {
+        this(0, cityKey, weather.getCity(), weather.getMain(), weather.getDescription(),
+                weather.getTemperature(), weather.getWindSpeed(), weather.getCloudiness(),
+                weather.getHumidity(), takenAt);
+    }
+
+    /**
+     * @param photoId id of photo weather was stamped on
+     */
+    public void setPhotoId(int photoId) {
+        this.photoId = photoId;
+    }
+
+    /**
+     * @return id of photo weather was stamped on
+     */
+    public int getPhotoId() {
+        return photoId;
+    }
+
+    /**
+     * @return normalized city name
+     */
+    public String getCityKey() {
+        return cityKey;
+    }
+
+    /**
+     * @return city name as shown on photo
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * @return weather main description
+     */
+    public String getMain() {
+        return main;
+    }
+
+    /**
+     * @return weather detailed description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return temperature in °C
+     */
+    public double getTemperature() {
+        return temperature;
+    }
+
+    /**
+     * @return wind speed in meter/sec
+     */
+    public double getWindSpeed() {
+        return windSpeed;
+    }
+
+    /**
+     * @return clouds percentage
+     */
+    public int getCloudiness() {
+        return cloudiness;
+    }
+
+    /**
+     * @return humidity in percentage
+     */
+    public int getHumidity() {
+        return humidity;
+    }
+
+    /**
+     * @return time in milliseconds photo was taken
+     */
+    public long getTakenAt() {
+        return takenAt;
+    }
+}
@@ -1,28 +1,40 @@
 package com.example.photoweather.ui.main.fragments.history;
 
-import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.text.format.DateUtils;
 import android.util.DisplayMetrics;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProviders;
+import androidx.paging.PagedList;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.photoweather.R;
+import com.example.photoweather.WeatherFormatter;
+import com.example.photoweather.capture.CaptureViewModel;
+import com.example.photoweather.models.HistoryFilter;
 import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.PhotoWithWeather;
+import com.example.photoweather.models.WeatherSnapshot;
 import com.squareup.picasso.Picasso;
-import com.squareup.picasso.Target;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 /**
@@ -35,6 +47,8 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
 
     // factor to set number of images to display in grid view
     private static final int IMAGE_NUMBER_FACTOR = 100;
+    // photos within this many °C of photo shown are similar in temperature
+    private static final double SIMILAR_TEMPERATURE = 3;
 
     // holds view model reference to update data from
     private HistoryViewModel mHistoryViewModel;
@@ -50,11 +64,27 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
     private boolean mFullImage;
     // holds current photo clicked
     private Photo mCurrentPhoto;
+    // weather of current photo, null if it's not loaded or photo has no weather
+    private WeatherSnapshot mCurrentWeather;
+    // live data of current photo with it's weather, observed while photo is shown
+    private LiveData<PhotoWithWeather> mCurrentPhotoWithWeather;
+    // bar shown above grid when only some photos are shown
+    private View mFilterBar;
+    // tells which photos are shown
+    private TextView mFilterText;
+    // where user types words to search photos by
+    private EditText mSearchBox;
+    // formats temperatures of filters
+    private WeatherFormatter mWeatherFormatter;
 
-    // holds list of photos that show in view
-    private List<Photo> mPhotos;
     // holds adapter that shows photos
     private PhotoAdapter mPhotoAdapter;
+    // holds adapter that shows photos still being processed
+    private PendingCaptureAdapter mPendingAdapter;
+    // shared with activity to know photos still being processed
+    private CaptureViewModel mCaptureViewModel;
+    // number of photos still being processed
+    private int mPendingJobCount;
 
     /**
      * get reference to view model
@@ -63,6 +93,7 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         mHistoryViewModel = ViewModelProviders.of(this).get(HistoryViewModel.class);
+        mCaptureViewModel = ViewModelProviders.of(requireActivity()).get(CaptureViewModel.class);
     }
 
     /**
@@ -107,9 +138,34 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
         mFullImageView = root.findViewById(R.id.full_image_view);
         mFullImageContainer = root.findViewById(R.id.full_image_container);
         mEmptyView = root.findViewById(R.id.empty_view);
+        mFilterBar = root.findViewById(R.id.filter_bar);
+        mFilterText = root.findViewById(R.id.filter_text);
+        mSearchBox = root.findViewById(R.id.search_box);
+        mWeatherFormatter = new WeatherFormatter(getResources());
 
         // set delete image button shown with FullImageView to call confirm delete
         root.findViewById(R.id.delete_image_button).setOnClickListener(v -> confirmDelete());
+        // set filter button shown with FullImageView to pick photos similar to it
+        root.findViewById(R.id.filter_image_button).setOnClickListener(v -> pickFilter());
+        // set clear filter button to show all photos again
+        root.findViewById(R.id.clear_filter_button).setOnClickListener(v ->
+                mHistoryViewModel.setFilter(HistoryFilter.all()));
+
+        // search as user types, view model waits for user to stop typing before searching
+        mSearchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mHistoryViewModel.search(s.toString());
+            }
+        });
 
         // first set empty view and hide others as data is not yet fetched from View Model
         mRecyclerView.setVisibility(View.GONE);
@@ -127,12 +183,46 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
         // tell recycler view that it's constant to improve performance
         mRecyclerView.setHasFixedSize(true);
 
-        // get adapter and give it to recycler view to use to display photos
+        // get adapters and give them to recycler view to use to display photos
+        // photos still being processed are shown first then stored photos
         mPhotoAdapter = new PhotoAdapter(this);
-        mRecyclerView.setAdapter(mPhotoAdapter);
+        mPendingAdapter = new PendingCaptureAdapter();
+        ConcatAdapter.Config config = new ConcatAdapter.Config.Builder()
+                .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                .build();
+        mRecyclerView.setAdapter(new ConcatAdapter(config, mPendingAdapter, mPhotoAdapter));
+
+        // new photo is added at top so keep it in view if user was already at top
+        mPhotoAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                GridLayoutManager layoutManager = (GridLayoutManager) mRecyclerView.getLayoutManager();
+                if (positionStart == 0 && layoutManager != null
+                        && layoutManager.findFirstCompletelyVisibleItemPosition() <= 0)
+                    mRecyclerView.scrollToPosition(0);
+            }
+        });
 
         // track change in list of photos in repository and update UI when data changes
-        mHistoryViewModel.getAllPhotos().observe(getViewLifecycleOwner(), this::updateUi);
+        mHistoryViewModel.getPhotos().observe(getViewLifecycleOwner(), this::updateUi);
+        // show which photos are shown
+        mHistoryViewModel.getFilter().observe(getViewLifecycleOwner(), this::updateFilterBar);
+        // tell user if photo couldn't be deleted so it can be tried again
+        mHistoryViewModel.getDeleteFailed().observe(getViewLifecycleOwner(), failed -> {
+            if (!failed)
+                return;
+            Toast.makeText(getContext(), getString(R.string.delete_failed), Toast.LENGTH_SHORT).show();
+            mHistoryViewModel.onDeleteFailureShown();
+        });
+
+        // track photos still being processed
+        mCaptureViewModel.getPendingJobs().observe(getViewLifecycleOwner(), pendingJobs -> {
+            mPendingAdapter.submitList(pendingJobs);
+            mPendingJobCount = pendingJobs == null ? 0 : pendingJobs.size();
+            // don't leave full image mode just because a photo finished a stage
+            if (!mFullImage)
+                updateVisibility(mPhotoAdapter.getCurrentList());
+        });
 
         return root;
     }
@@ -140,46 +230,48 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
     /**
      * Updates UI according to data changed
      *
-     * @param photos list with new data according to change in repository
+     * @param photos paged list with new data according to change in repository
      */
-    private void updateUi(List<Photo> photos) {
-
-        // first make sure that all images still exist in gallery and clean up any images not found
-        if (photos != null) {
-            for (Photo photo : photos) {
-                Picasso.get().load(photo.getUrl()).into(new Target() {
-                    @Override
-                    public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+    private void updateUi(PagedList<Photo> photos) {
 
-                    }
+        // set adapter data set to new list of photos
+        mPhotoAdapter.submitList(photos);
 
-                    @Override
-                    public void onBitmapFailed(Exception e, Drawable errorDrawable) {
-                        mHistoryViewModel.delete(photo);
-                    }
+        // list is loaded again on every DB change like a thumbnail being stored, so only leave
+        // full screen mode if photo shown is gone like when it was deleted
+        if (mFullImage && mCurrentPhoto != null && contains(photos, mCurrentPhoto))
+            return;
+        mFullImage = false;
 
-                    @Override
-                    public void onPrepareLoad(Drawable placeHolderDrawable) {
+        updateVisibility(photos);
+    }
 
-                    }
-                });
-            }
+    /**
+     * only loaded photos are checked so nothing is loaded, photo shown was loaded
+     * when it was clicked and list loads again around it
+     *
+     * @param photos paged list of stored photos
+     * @param photo  to look for
+     * @return true if photo with same id is loaded in list
+     */
+    private static boolean contains(PagedList<Photo> photos, Photo photo) {
+        if (photos == null)
+            return false;
+        for (Photo loaded : photos.snapshot()) {
+            if (loaded != null && loaded.getId() == photo.getId())
+                return true;
         }
+        return false;
+    }
 
-        // set local list to new list
-        mPhotos = photos;
-        // if data changed then full screen mode is false
-        mFullImage = false;
-
-        // set adapter data set to new list of photos
-        if (photos != null)
-            mPhotoAdapter.setPhotos(photos);
-        else
-            // if it is null put empty list
-            mPhotoAdapter.setPhotos(new ArrayList<>());
-
-        // if there are no photos then show empty view
-        if (photos == null || photos.size() < 1) {
+    /**
+     * Show grid if there are photos stored or being processed else show empty view
+     *
+     * @param photos paged list of stored photos
+     */
+    private void updateVisibility(PagedList<Photo> photos) {
+        // if there are no photos stored or being processed then show empty view
+        if ((photos == null || photos.size() < 1) && mPendingJobCount < 1) {
             mRecyclerView.setVisibility(View.GONE);
             mFullImageContainer.setVisibility(View.GONE);
             mEmptyView.setVisibility(View.VISIBLE);
@@ -199,8 +291,9 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
     @Override
     public void onPhotoClick(int position) {
 
-        // if there are no photos then return
-        if (mPhotos == null || mPhotos.size() < 1)
+        // if photo is not loaded then return
+        Photo photo = mPhotoAdapter.getPhoto(position);
+        if (photo == null)
             return;
 
         // show full image mode
@@ -208,14 +301,126 @@ public class HistoryFragment extends Fragment implements PhotoAdapter.OnPhotoLis
         mFullImageContainer.setVisibility(View.VISIBLE);
         mEmptyView.setVisibility(View.GONE);
 
-        // load photo into image view to show in full image mode
-        mCurrentPhoto = mPhotos.get(position);
+        // load full size photo into image view to show in full image mode
+        // as grid only shows thumbnails
+        mCurrentPhoto = photo;
         Picasso.get().load(mCurrentPhoto.getUrl()).into(mFullImageView);
+        // load weather of photo to offer photos similar to it
+        observeCurrentWeather(photo);
         // set to true to know currently in full image mode
         // so properly handle back press
         mFullImage = true;
     }
 
+    /**
+     * Implement interface of photo adapter to make thumbnails of photos stored before
+     * thumbnails existed
+     *
+     * @param photo with no thumbnail
+     */
+    @Override
+    public void onThumbnailMissing(Photo photo) {
+        mHistoryViewModel.createThumbnail(photo);
+    }
+
+    /**
+     * Stop observing weather of photo shown before and observe weather of new photo
+     *
+     * @param photo shown in full image mode
+     */
+    private void observeCurrentWeather(Photo photo) {
+        if (mCurrentPhotoWithWeather != null)
+            mCurrentPhotoWithWeather.removeObservers(getViewLifecycleOwner());
+        mCurrentWeather = null;
+        mCurrentPhotoWithWeather = mHistoryViewModel.getPhotoWithWeather(photo);
+        mCurrentPhotoWithWeather.observe(getViewLifecycleOwner(), photoWithWeather ->
+                mCurrentWeather = photoWithWeather == null ? null : photoWithWeather.getWeather());
+    }
+
+    /**
+     * Show bar telling which photos are shown if not all of them
+     *
+     * @param filter which photos are shown
+     */
+    private void updateFilterBar(HistoryFilter filter) {
+        // search box already tells what is searched for
+        if (filter == null || filter.isAll() || filter.getType() == HistoryFilter.Type.SEARCH) {
+            mFilterBar.setVisibility(View.GONE);
+            return;
+        }
+        mFilterText.setText(describe(filter));
+        mFilterBar.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * @param filter which photos are shown, not all photos
+     * @return text telling which photos are shown
+     */
+    private String describe(HistoryFilter filter) {
+        switch (filter.getType()) {
+            case CITY:
+                return getString(R.string.filter_city, filter.getCity());
+            case DATE_RANGE:
+                return getString(R.string.filter_date_range, DateUtils.formatDateRange(getContext(),
+                        filter.getFrom(), filter.getTo(), DateUtils.FORMAT_SHOW_DATE));
+            default:
+                return getString(R.string.filter_temperature,
+                        mWeatherFormatter.formatTemperature(filter.getMinTemperature()),
+                        mWeatherFormatter.formatTemperature(filter.getMaxTemperature()));
+        }
+    }
+
+    /**
+     * shows filters of photos similar to photo in full image mode, photos stored before weather
+     * was kept can only be matched by day
+     */
+    private void pickFilter() {
+        if (mCurrentPhoto == null)
+            return;
+
+        // filters and their text in same order
+        List<HistoryFilter> filters = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+
+        if (mCurrentWeather != null) {
+            filters.add(HistoryFilter.byCity(mCurrentWeather.getCity()));
+            labels.add(getString(R.string.filter_by_city, mCurrentWeather.getCity()));
+        }
+
+        // whole day photo was taken in local time
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(mCurrentPhoto.getTakenAt());
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        long dayStart = day.getTimeInMillis();
+        day.add(Calendar.DAY_OF_MONTH, 1);
+        filters.add(HistoryFilter.byDateRange(dayStart, day.getTimeInMillis() - 1));
+        labels.add(getString(R.string.filter_by_day));
+
+        if (mCurrentWeather != null) {
+            double temperature = mCurrentWeather.getTemperature();
+            HistoryFilter filter = HistoryFilter.byTemperature(temperature - SIMILAR_TEMPERATURE,
+                    temperature + SIMILAR_TEMPERATURE);
+            filters.add(filter);
+            labels.add(getString(R.string.filter_by_temperature,
+                    mWeatherFormatter.formatTemperature(filter.getMinTemperature()),
+                    mWeatherFormatter.formatTemperature(filter.getMaxTemperature())));
+        }
+
+        // picking a filter shows grid of matching photos
+        new AlertDialog.Builder(getContext())
+                .setItems(labels.toArray(new String[0]), (dialog, which) -> {
+                    // picked filter replaces search
+                    mSearchBox.setText(null);
+                    mHistoryViewModel.setFilter(filters.get(which));
+                    mFullImage = false;
+                    updateVisibility(mPhotoAdapter.getCurrentList());
+                })
+                .show();
+    }
+
     /**
      * shows confirm delete image dialog and if yes is pressed proceed to delete image
      */
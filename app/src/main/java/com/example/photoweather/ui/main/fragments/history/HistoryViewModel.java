@@ -1,27 +1,50 @@
 package com.example.photoweather.ui.main.fragments.history;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
 import com.example.photoweather.Repository;
+import com.example.photoweather.models.HistoryFilter;
 import com.example.photoweather.models.Photo;
+import com.example.photoweather.models.PhotoWithWeather;
 
-import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * @author Ali Adel
  * <p>
  * View model to hold information about history data
+ * <p>
+ * History is shown through a filter, changing filter swaps paged photos to query of new filter
+ * and survives configuration changes
+ * <p>
+ * Search runs once user stops typing for a moment so every key press doesn't start a query
  */
 public class HistoryViewModel extends AndroidViewModel {
 
+    // time in milliseconds user has to stop typing before search runs
+    private static final long SEARCH_DELAY_MILLIS = 300;
+
     // reference to repository which fetches data
     private Repository mRepository;
-    // reference to all photos in history
-    private LiveData<List<Photo>> mAllPhotos;
+    // filter photos are shown through, all photos at first
+    private final MutableLiveData<HistoryFilter> mFilter = new MutableLiveData<>(HistoryFilter.all());
+    // reference to photos matching filter loaded page by page
+    private LiveData<PagedList<Photo>> mPhotos;
+    // to run search once user stops typing
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // search waiting for user to stop typing, null if none
+    private Runnable mPendingSearch;
+    // true once a delete user asked for didn't happen until UI tells user
+    private final MutableLiveData<Boolean> mDeleteFailed = new MutableLiveData<>(false);
 
     /**
      * Constructor to be used by Viewmodleproviders
@@ -33,8 +56,8 @@ public class HistoryViewModel extends AndroidViewModel {
 
         // get reference to repository
         mRepository = Repository.getRepositoryInstance(application);
-        // get reference to live data to watch it in UI
-        mAllPhotos = mRepository.getAllPhotos();
+        // get reference to live data to watch it in UI, query changes with filter
+        mPhotos = Transformations.switchMap(mFilter, mRepository::getPhotos);
     }
 
     /**
@@ -42,9 +65,10 @@ public class HistoryViewModel extends AndroidViewModel {
      * tell repository to insert it
      *
      * @param photo to be inserted
+     * @return future that completes once photo is inserted
      */
-    public void insert(Photo photo) {
-        mRepository.insert(photo);
+    public Future<?> insert(Photo photo) {
+        return mRepository.insert(photo);
     }
 
     /**
@@ -52,24 +76,125 @@ public class HistoryViewModel extends AndroidViewModel {
      * tell repository to delete it
      *
      * @param photo to be deleted
+     * @return future that completes once photo is deleted, failure is given to delete failed
+     */
+    public Future<?> delete(Photo photo) {
+        return mRepository.delete(photo, () -> mDeleteFailed.setValue(true));
+    }
+
+    /**
+     * Make thumbnail of photo that doesn't have one yet
+     * tell repository to make it in background
+     *
+     * @param photo with no thumbnail
      */
-    public void delete(Photo photo) {
-        mRepository.delete(photo);
+    public void createThumbnail(Photo photo) {
+        mRepository.createThumbnail(photo);
     }
 
     /**
      * Delete all photos from history
      * tell repository to delete all photos
+     *
+     * @return future that completes once all photos are deleted, failure is given to delete failed
+     */
+    public Future<?> deleteAllPhotos() {
+        return mRepository.deleteAllPhotos(() -> mDeleteFailed.setValue(true));
+    }
+
+    /**
+     * @return live data that is true once a delete user asked for didn't happen
+     */
+    public LiveData<Boolean> getDeleteFailed() {
+        return mDeleteFailed;
+    }
+
+    /**
+     * UI told user delete failed so it shouldn't be told again
+     */
+    public void onDeleteFailureShown() {
+        mDeleteFailed.setValue(false);
+    }
+
+    /**
+     * @return live data observing photos matching filter loaded page by page
+     */
+    public LiveData<PagedList<Photo>> getPhotos() {
+        return this.mPhotos;
+    }
+
+    /**
+     * Show only photos matching filter, photos are not loaded again if filter didn't change
+     * <p>
+     * search still waiting for user to stop typing is dropped
+     *
+     * @param filter which photos are shown
+     */
+    public void setFilter(HistoryFilter filter) {
+        cancelPendingSearch();
+        applyFilter(filter);
+    }
+
+    /**
+     * Search photos once user stops typing, every key press pushes search back
+     * <p>
+     * clearing search shows all photos again unless another filter was picked meanwhile
+     *
+     * @param text as typed by user so far
+     */
+    public void search(String text) {
+        cancelPendingSearch();
+        HistoryFilter filter = HistoryFilter.bySearch(text);
+        mPendingSearch = () -> {
+            mPendingSearch = null;
+            HistoryFilter current = mFilter.getValue();
+            if (filter.isAll() && current != null && current.getType() != HistoryFilter.Type.SEARCH)
+                return;
+            applyFilter(filter);
+        };
+        mHandler.postDelayed(mPendingSearch, SEARCH_DELAY_MILLIS);
+    }
+
+    /**
+     * @return live data of filter photos are shown through
+     */
+    public LiveData<HistoryFilter> getFilter() {
+        return mFilter;
+    }
+
+    /**
+     * @param photo to get weather of
+     * @return live data of photo and weather stamped on it
+     */
+    public LiveData<PhotoWithWeather> getPhotoWithWeather(Photo photo) {
+        return mRepository.getPhotoWithWeather(photo);
+    }
+
+    /**
+     * drop search waiting for user to stop typing as nobody is left to see it
+     */
+    @Override
+    protected void onCleared() {
+        cancelPendingSearch();
+    }
+
+    /**
+     * @param filter which photos are shown, ignored if it didn't change
      */
-    public void deleteAllPhotos() {
-        mRepository.deleteAllPhotos();
+    private void applyFilter(HistoryFilter filter) {
+        if (filter.equals(mFilter.getValue()))
+            return;
+        mFilter.setValue(filter);
     }
 
     /**
-     * @return live data observing all photos
+     * drop search waiting for user to stop typing if any
      */
-    public LiveData<List<Photo>> getAllPhotos() {
-        return this.mAllPhotos;
+    private void cancelPendingSearch() {
+        if (mPendingSearch == null)
+            return;
+        mHandler.removeCallbacks(mPendingSearch);
+        mPendingSearch = null;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.example.photoweather.ui.main.fragments.history;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.photoweather.R;
+import com.example.photoweather.capture.CaptureProgress;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * Adapter to show photos still being processed at top of history grid
+ * <p>
+ * each item shows stage it's photo reached and disappears once photo is stored
+ * as stored photo then shows up in photo adapter
+ */
+public class PendingCaptureAdapter extends ListAdapter<CaptureProgress, PendingCaptureAdapter.PendingHolder> {
+
+    /**
+     * Tells list differ if 2 items are same capture job and if they reached same stage
+     */
+    private static final DiffUtil.ItemCallback<CaptureProgress> DIFF_CALLBACK = new DiffUtil.ItemCallback<CaptureProgress>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CaptureProgress oldItem, @NonNull CaptureProgress newItem) {
+            return oldItem.getJobId() == newItem.getJobId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CaptureProgress oldItem, @NonNull CaptureProgress newItem) {
+            return oldItem.getStage() == newItem.getStage();
+        }
+    };
+
+    /**
+     * Constructor with ids of capture jobs as stable ids
+     */
+    public PendingCaptureAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Holder of item of photo being processed
+     */
+    static class PendingHolder extends RecyclerView.ViewHolder {
+        // shows stage photo reached
+        private final ProgressBar mProgressBar;
+
+        /**
+         * @param itemView view that inflates with holder
+         */
+        PendingHolder(@NonNull View itemView) {
+            super(itemView);
+            mProgressBar = itemView.findViewById(R.id.pending_progress);
+            mProgressBar.setMax(CaptureProgress.Stage.SHARE.ordinal());
+        }
+    }
+
+    /**
+     * inflates layout to display as item of recycler view
+     */
+    @NonNull
+    @Override
+    public PendingHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_pending, parent, false);
+        return new PendingHolder(itemView);
+    }
+
+    /**
+     * show stage photo reached
+     */
+    @Override
+    public void onBindViewHolder(@NonNull PendingHolder holder, int position) {
+        holder.mProgressBar.setProgress(getItem(position).getStage().ordinal());
+    }
+
+    /**
+     * @return id of capture job as stable id of item
+     */
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getJobId();
+    }
+}
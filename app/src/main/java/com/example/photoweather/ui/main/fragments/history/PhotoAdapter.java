@@ -1,29 +1,48 @@
 package com.example.photoweather.ui.main.fragments.history;
 
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.photoweather.R;
 import com.example.photoweather.models.Photo;
 import com.squareup.picasso.Picasso;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
 
 /**
  * @author Ali Adel
  * <p>
  * Adapter to use by recycler view to display photos
+ * <p>
+ * Photos are given as paged list so only pages around what is shown on screen are loaded
+ * and changes are diffed on background thread so only changed items are rebound
  */
-public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoHolder> {
+public class PhotoAdapter extends PagedListAdapter<Photo, PhotoAdapter.PhotoHolder> {
+
+    /**
+     * Tells paged list differ if 2 photos are same item (by id) and if they look the same
+     */
+    private static final DiffUtil.ItemCallback<Photo> DIFF_CALLBACK = new DiffUtil.ItemCallback<Photo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Photo oldItem, @NonNull Photo newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Photo oldItem, @NonNull Photo newItem) {
+            return TextUtils.equals(oldItem.getUrl(), newItem.getUrl())
+                    && TextUtils.equals(oldItem.getThumbnailPath(), newItem.getThumbnailPath());
+        }
+    };
 
-    // list of photos first make empty list
-    private List<Photo> photos = new ArrayList<>();
     // on item click listener to be implemented by fragment that uses this adapter
     private OnPhotoListener mOnPhotoListener;
 
@@ -34,7 +53,10 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoHolder>
      *                        click events
      */
     public PhotoAdapter(OnPhotoListener onPhotoListener) {
+        super(DIFF_CALLBACK);
         this.mOnPhotoListener = onPhotoListener;
+        // ids of photos are stable so recycler view can keep views of unchanged photos
+        setHasStableIds(true);
     }
 
     /**
@@ -68,7 +90,8 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoHolder>
          */
         @Override
         public void onClick(View v) {
-            mOnPhotoListener.onPhotoClick(getAdapterPosition());
+            // position in this adapter as grid also shows photos still being processed before it
+            mOnPhotoListener.onPhotoClick(getBindingAdapterPosition());
         }
     }
 
@@ -86,33 +109,51 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoHolder>
     }
 
     /**
-     * when item instantiated get photo object and load image using picasso into view
+     * when item instantiated get photo object and load its thumbnail using picasso into view
+     * <p>
+     * photos stored before thumbnails existed are loaded scaled down to cell size
+     * and listener is asked to make their thumbnail
      */
     @Override
     public void onBindViewHolder(@NonNull PhotoHolder holder, int position) {
-        Photo currentPhoto = photos.get(position);
+        Photo currentPhoto = getItem(position);
 
-        Picasso.get().load(currentPhoto.getUrl()).into(holder.mImageView);
+        // page of photo is not loaded yet so clear view until it is
+        if (currentPhoto == null) {
+            Picasso.get().cancelRequest(holder.mImageView);
+            holder.mImageView.setImageDrawable(null);
+            return;
+        }
+
+        if (currentPhoto.getThumbnailPath() != null) {
+            Picasso.get().load(new File(currentPhoto.getThumbnailPath())).into(holder.mImageView);
+            return;
+        }
+
+        int size = holder.mImageView.getResources().getDimensionPixelSize(R.dimen.thumbnail_size);
+        Picasso.get().load(currentPhoto.getUrl())
+                .resize(size, size)
+                .centerInside()
+                .onlyScaleDown()
+                .into(holder.mImageView);
+        mOnPhotoListener.onThumbnailMissing(currentPhoto);
     }
 
     /**
-     * @return size of list to be displayed
+     * @return id of photo in DB as stable id of item
      */
     @Override
-    public int getItemCount() {
-        return photos.size();
+    public long getItemId(int position) {
+        Photo photo = getItem(position);
+        return photo == null ? RecyclerView.NO_ID : photo.getId();
     }
 
     /**
-     * Update list of photos to display
-     *
-     * @param photos list of photos to replace current list to display
+     * @param position of photo in list
+     * @return photo at position or null if its page is not loaded yet
      */
-    public void setPhotos(List<Photo> photos) {
-        this.photos = photos;
-
-        // tell recycler view to update view based on that list changed
-        notifyDataSetChanged();
+    public Photo getPhoto(int position) {
+        return getItem(position);
     }
 
     /**
@@ -120,6 +161,13 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoHolder>
      */
     public interface OnPhotoListener {
         void onPhotoClick(int position);
+
+        /**
+         * called when photo with no thumbnail is shown so thumbnail can be made
+         *
+         * @param photo with no thumbnail
+         */
+        void onThumbnailMissing(Photo photo);
     }
 }
 
@@ -5,6 +5,7 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.text.format.DateUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,10 +18,9 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProviders;
 
 import com.example.photoweather.R;
+import com.example.photoweather.WeatherFormatter;
 import com.example.photoweather.models.Weather;
 
-import java.util.Locale;
-
 /**
  * @author Ali Adel
  * <p>
@@ -43,6 +43,8 @@ public class WeatherInfoFragment extends Fragment {
     private TextView mFeelsLikeTemperatureTextView;
     private TextView mHumidityPercentageTextView;
     private View mWeatherDescriptionContainer;
+    // tells how old weather shown is as it may be cached from an earlier launch
+    private TextView mWeatherAgeTextView;
 
     // containers that hold state of data
     private View mWholeWeatherDataContainer;
@@ -52,6 +54,12 @@ public class WeatherInfoFragment extends Fragment {
     // search edit text
     private EditText mEnterCityEditText;
 
+    // formats weather values same way they are drawn on photos
+    private WeatherFormatter mWeatherFormatter;
+
+    // weather shown to update it's age when fragment is shown again
+    private Weather mShownWeather;
+
 
     /**
      * Get reference to view model
@@ -74,6 +82,7 @@ public class WeatherInfoFragment extends Fragment {
             Bundle savedInstanceState) {
         // get weather info fragment to display
         View root = inflater.inflate(R.layout.fragment_weather_info, container, false);
+        mWeatherFormatter = new WeatherFormatter(getResources());
 
         // get reference to all views
         mCityTextView = root.findViewById(R.id.city);
@@ -86,6 +95,7 @@ public class WeatherInfoFragment extends Fragment {
         mMaxTemperatureTextView = root.findViewById(R.id.max);
         mFeelsLikeTemperatureTextView = root.findViewById(R.id.like);
         mHumidityPercentageTextView = root.findViewById(R.id.humidity);
+        mWeatherAgeTextView = root.findViewById(R.id.weather_age);
 
         // container that has weather detailed description
         // because want to hide it if short description matches detailed description
@@ -125,6 +135,15 @@ public class WeatherInfoFragment extends Fragment {
         return root;
     }
 
+    /**
+     * age of weather shown changes while fragment is hidden so update it
+     */
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateWeatherAge();
+    }
+
     /**
      * helper method to update UI with weather object
      *
@@ -154,36 +173,48 @@ public class WeatherInfoFragment extends Fragment {
         mWholeWeatherDataContainer.setVisibility(View.VISIBLE);
         mErrorMessage.setVisibility(View.GONE);
 
+        // weather may be cached so tell user how old it is
+        mShownWeather = weather;
+        updateWeatherAge();
+
         // set city name and cloud percentage
         mCityTextView.setText(weather.getCity());
-        mCloudPercentageTextView.setText(getString(R.string.data_with_percentage, weather.getCloudiness()));
-        mWindSpeedTextView.setText(getString(R.string.wind_speed, String.valueOf(weather.getWindSpeed())));
+        mCloudPercentageTextView.setText(mWeatherFormatter.formatPercentage(weather.getCloudiness()));
+        mWindSpeedTextView.setText(mWeatherFormatter.formatWindSpeed(weather.getWindSpeed()));
         mMainWeatherTextView.setText(weather.getMain());
 
         // remove detailed description if matches short description of weather
-        if (weather.getMain().equalsIgnoreCase(weather.getDescription())) {
-            mWeatherDescriptionContainer.setVisibility(View.GONE);
-        }
+        // shown again otherwise as weather is replaced in background by refreshed weather
+        mWeatherDescriptionContainer.setVisibility(
+                weather.getMain().equalsIgnoreCase(weather.getDescription()) ? View.GONE : View.VISIBLE);
 
         // set detailed description
         mWeatherDescriptionTextView.setText(weather.getDescription());
 
         // set temperature, min, max and feels like text
-        mTemperatureTextView.setText(getString(R.string.temperature_format,
-                String.format(Locale.US, "%.2f",
-                        weather.getTemperature())));
-        mMinTemperatureTextView.setText(getString(R.string.temperature_format,
-                String.format(Locale.US, "%.2f",
-                        weather.getMin())));
-        mMaxTemperatureTextView.setText(getString(R.string.temperature_format,
-                String.format(Locale.US, "%.2f",
-                        weather.getMax())));
-        mFeelsLikeTemperatureTextView.setText(getString(R.string.temperature_format,
-                String.format(Locale.US, "%.2f",
-                        weather.getFeelsLike())));
+        mTemperatureTextView.setText(mWeatherFormatter.formatTemperature(weather.getTemperature()));
+        mMinTemperatureTextView.setText(mWeatherFormatter.formatTemperature(weather.getMin()));
+        mMaxTemperatureTextView.setText(mWeatherFormatter.formatTemperature(weather.getMax()));
+        mFeelsLikeTemperatureTextView.setText(mWeatherFormatter.formatTemperature(weather.getFeelsLike()));
 
         // set humidity text
-        mHumidityPercentageTextView.setText(getString(R.string.data_with_percentage, weather.getHumidity()));
+        mHumidityPercentageTextView.setText(mWeatherFormatter.formatPercentage(weather.getHumidity()));
+    }
+
+    /**
+     * show how long ago weather shown was fetched and if it is shown because there is no network
+     */
+    private void updateWeatherAge() {
+        if (mShownWeather == null || mShownWeather.getFetchedAt() == 0) {
+            mWeatherAgeTextView.setVisibility(View.GONE);
+            return;
+        }
+
+        CharSequence age = DateUtils.getRelativeTimeSpanString(mShownWeather.getFetchedAt(),
+                System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+        mWeatherAgeTextView.setText(getString(isNetworkAvailable()
+                ? R.string.weather_age : R.string.weather_age_offline, age));
+        mWeatherAgeTextView.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -0,0 +1,79 @@
+package com.example.photoweather;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of how much images are reduced while decoding
+ */
+public class BitmapDecoderTest {
+
+    @Test
+    public void sampleSize_imageWithinMaxSize_isNotReduced() {
+        assertEquals(1, BitmapDecoder.sampleSize(800, 600, 1024));
+        assertEquals(1, BitmapDecoder.sampleSize(1, 1, 1));
+    }
+
+    @Test
+    public void sampleSize_exactFit_isNotReduced() {
+        assertEquals(1, BitmapDecoder.sampleSize(1024, 1024, 1024));
+        assertEquals(1, BitmapDecoder.sampleSize(1024, 768, 1024));
+    }
+
+    @Test
+    public void sampleSize_exactMultiple_reducesToMaxSize() {
+        assertEquals(2, BitmapDecoder.sampleSize(2048, 1536, 1024));
+        assertEquals(4, BitmapDecoder.sampleSize(4096, 3072, 1024));
+    }
+
+    @Test
+    public void sampleSize_oneOverMaxSize_reducesOnce() {
+        assertEquals(2, BitmapDecoder.sampleSize(1025, 10, 1024));
+        assertEquals(2, BitmapDecoder.sampleSize(10, 1025, 1024));
+    }
+
+    @Test
+    public void sampleSize_oddDimensions_roundsDecodedSizeUp() {
+        // 2049 / 2 is 1024.5 and decoder keeps last partial pixel so 1025 doesn't fit
+        assertEquals(4, BitmapDecoder.sampleSize(2049, 1537, 1024));
+        // 4001 / 4 rounded up is 1001 which fits
+        assertEquals(4, BitmapDecoder.sampleSize(4001, 3001, 1024));
+        assertEquals(1, BitmapDecoder.sampleSize(1023, 767, 1024));
+    }
+
+    @Test
+    public void sampleSize_rotatedImage_isReducedSameAsUpright() {
+        // camera stores portrait photos as landscape pixels with rotation in EXIF
+        int[][] sizes = {{4032, 3024}, {4000, 2250}, {2049, 1537}, {1025, 3}};
+        for (int[] size : sizes) {
+            assertEquals(BitmapDecoder.sampleSize(size[0], size[1], 1024),
+                    BitmapDecoder.sampleSize(size[1], size[0], 1024));
+        }
+    }
+
+    @Test
+    public void sampleSize_decodedImage_alwaysFitsAndIsNotReducedMoreThanNeeded() {
+        int maxSize = 1080;
+        for (int width = 1; width <= 5000; width += 37) {
+            for (int height = 1; height <= 5000; height += 41) {
+                int sampleSize = BitmapDecoder.sampleSize(width, height, maxSize);
+                assertEquals(0, sampleSize & (sampleSize - 1));
+                assertTrue(divideRoundingUp(width, sampleSize) <= maxSize);
+                assertTrue(divideRoundingUp(height, sampleSize) <= maxSize);
+                if (sampleSize > 1) {
+                    int half = sampleSize / 2;
+                    assertTrue(divideRoundingUp(width, half) > maxSize
+                            || divideRoundingUp(height, half) > maxSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return value / divisor rounded up as decoder sizes reduced images
+     */
+    private static int divideRoundingUp(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.photoweather;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of lane ordering tasks by priority and rejecting tasks once full
+ */
+public class IoLaneTest {
+
+    // released to let task blocking lane thread finish
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+    }
+
+    @Test
+    public void highPriority_runsBeforeLowPriority() throws Exception {
+        IoLane lane = new IoLane("test", 1, 10, 2, Thread::new);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // block only thread so next tasks queue up
+        lane.submit(IoLane.Priority.LOW, this::block);
+        lane.submit(IoLane.Priority.LOW, () -> order.add("low 1"));
+        lane.submit(IoLane.Priority.LOW, () -> order.add("low 2"));
+        lane.submit(IoLane.Priority.HIGH, () -> order.add("high 1"));
+        Future<?> last = lane.submit(IoLane.Priority.HIGH, () -> order.add("high 2"));
+
+        mRelease.countDown();
+        waitFor(lane.submit(IoLane.Priority.LOW, () -> {
+        }));
+        assertTrue(last.isDone());
+        assertEquals(4, order.size());
+        assertEquals("high 1", order.get(0));
+        assertEquals("high 2", order.get(1));
+        assertEquals("low 1", order.get(2));
+        assertEquals("low 2", order.get(3));
+    }
+
+    @Test
+    public void full_rejectsAtOnce_andKeepsReserveForHighPriority() throws Exception {
+        IoLane lane = new IoLane("test", 1, 3, 1, Thread::new);
+
+        Future<?> blocker = lane.submit(IoLane.Priority.LOW, this::block);
+        assertFalse(IoLane.isRejected(lane.submit(IoLane.Priority.LOW, () -> {
+        })));
+        // only reserved place is left so low priority is turned away
+        assertTrue(IoLane.isRejected(lane.submit(IoLane.Priority.LOW, () -> {
+        })));
+        assertFalse(IoLane.isRejected(lane.submit(IoLane.Priority.HIGH, () -> {
+        })));
+        // lane is full
+        assertTrue(IoLane.isRejected(lane.submit(IoLane.Priority.HIGH, () -> {
+        })));
+        assertFalse(IoLane.isRejected(blocker));
+
+        // places are given back once tasks are done
+        mRelease.countDown();
+        waitFor(blocker);
+        Future<?> afterwards = lane.submit(IoLane.Priority.LOW, () -> {
+        });
+        assertFalse(IoLane.isRejected(afterwards));
+        waitFor(afterwards);
+    }
+
+    /**
+     * keep lane thread busy until test releases it
+     */
+    private void block() {
+        try {
+            mRelease.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param future to wait for
+     */
+    private static void waitFor(Future<?> future) throws Exception {
+        future.get(5, TimeUnit.SECONDS);
+    }
+}
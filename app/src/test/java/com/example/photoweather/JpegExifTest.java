@@ -0,0 +1,195 @@
+package com.example.photoweather;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of copying EXIF segment between JPEG images
+ */
+public class JpegExifTest {
+
+    // TIFF structure starts after APP1 marker, length and EXIF header
+    private static final int TIFF_START = 10;
+
+    // SOI, APP0 (JFIF), APP1 (EXIF), SOS and some image data
+    private static final byte[] CAMERA_JPEG = bytes(
+            0xFF, 0xD8,
+            0xFF, 0xE0, 0x00, 0x06, 'J', 'F', 'I', 'F',
+            0xFF, 0xE1, 0x00, 0x0A, 'E', 'x', 'i', 'f', 0x00, 0x00, 0x12, 0x34,
+            0xFF, 0xDA, 0x00, 0x02, 0x55, 0x66,
+            0xFF, 0xD9);
+
+    // what Bitmap.compress writes, no EXIF
+    private static final byte[] COMPRESSED_JPEG = bytes(
+            0xFF, 0xD8,
+            0xFF, 0xE0, 0x00, 0x04, 'J', 'F',
+            0xFF, 0xDA, 0x00, 0x02, 0x77,
+            0xFF, 0xD9);
+
+    @Test
+    public void readExifSegment_returnsWholeApp1Segment() throws IOException {
+        byte[] segment = JpegExif.readExifSegment(new ByteArrayInputStream(CAMERA_JPEG));
+
+        assertArrayEquals(bytes(0xFF, 0xE1, 0x00, 0x0A, 'E', 'x', 'i', 'f', 0x00, 0x00, 0x12, 0x34),
+                segment);
+    }
+
+    @Test
+    public void readExifSegment_withoutExif_returnsNull() throws IOException {
+        assertNull(JpegExif.readExifSegment(new ByteArrayInputStream(COMPRESSED_JPEG)));
+        assertNull(JpegExif.readExifSegment(new ByteArrayInputStream(bytes(0x89, 'P', 'N', 'G'))));
+        assertNull(JpegExif.readExifSegment(new ByteArrayInputStream(bytes(0xFF, 0xD8, 0xFF))));
+    }
+
+    @Test
+    public void write_insertsExifAfterJfifSegment() throws IOException {
+        byte[] segment = JpegExif.readExifSegment(new ByteArrayInputStream(CAMERA_JPEG));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        JpegExif.write(COMPRESSED_JPEG, segment, output);
+
+        byte[] result = output.toByteArray();
+        assertEquals(COMPRESSED_JPEG.length + segment.length, result.length);
+        assertArrayEquals(segment, JpegExif.readExifSegment(new ByteArrayInputStream(result)));
+        // SOI and APP0 stay first
+        assertArrayEquals(Arrays.copyOf(COMPRESSED_JPEG, 8), Arrays.copyOf(result, 8));
+        assertEquals(0xE1, result[9] & 0xFF);
+    }
+
+    @Test
+    public void write_withoutJfif_insertsExifAfterStartOfImage() throws IOException {
+        byte[] jpeg = bytes(0xFF, 0xD8, 0xFF, 0xDA, 0x00, 0x02, 0x77, 0xFF, 0xD9);
+        byte[] segment = JpegExif.readExifSegment(new ByteArrayInputStream(CAMERA_JPEG));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        JpegExif.write(jpeg, segment, output);
+
+        byte[] result = output.toByteArray();
+        assertEquals(0xE1, result[3] & 0xFF);
+        assertArrayEquals(segment, Arrays.copyOfRange(result, 2, 2 + segment.length));
+    }
+
+    @Test
+    public void rewriteExifSegment_setsSizeAndCutsOffThumbnail() {
+        byte[] segment = exifSegment(false);
+
+        byte[] result = JpegExif.rewriteExifSegment(segment, 1000, 750);
+
+        // everything from thumbnail IFD on is gone and length is fixed
+        assertEquals(TIFF_START + 88, result.length);
+        ByteBuffer tiff = tiff(result);
+        assertEquals(result.length - 2, ((result[2] & 0xFF) << 8) | (result[3] & 0xFF));
+        // main IFD no longer links to thumbnail IFD
+        assertEquals(0, tiff.getInt(8 + 2 + 2 * 12));
+        // image width in main IFD
+        assertEquals(1000, tiff.getShort(8 + 2 + 8));
+        // pixel x and y dimension in EXIF IFD
+        assertEquals(1000, tiff.getShort(38 + 2 + 8));
+        assertEquals(750, tiff.getInt(38 + 2 + 12 + 8));
+        // input is left as it was
+        assertArrayEquals(exifSegment(false), segment);
+    }
+
+    @Test
+    public void rewriteExifSegment_thumbnailNotAtEnd_isOnlyUnlinked() {
+        // something tags point at is stored after thumbnail so nothing can be cut off
+        byte[] segment = exifSegment(true);
+
+        byte[] result = JpegExif.rewriteExifSegment(segment, 1000, 750);
+
+        assertEquals(segment.length, result.length);
+        assertEquals(0, tiff(result).getInt(8 + 2 + 2 * 12));
+        assertEquals(1000, tiff(result).getShort(38 + 2 + 8));
+    }
+
+    @Test
+    public void rewriteExifSegment_sizeBeyondShort_becomesLong() {
+        byte[] result = JpegExif.rewriteExifSegment(exifSegment(false), 70000, 750);
+
+        ByteBuffer tiff = tiff(result);
+        assertEquals(4, tiff.getShort(38 + 2 + 2));
+        assertEquals(70000, tiff.getInt(38 + 2 + 8));
+    }
+
+    @Test
+    public void rewriteExifSegment_brokenOffsets_keepsSegment() {
+        byte[] segment = exifSegment(false);
+        // main IFD points outside of segment
+        tiff(segment).putInt(4, 5000);
+
+        assertSame(segment, JpegExif.rewriteExifSegment(segment, 1000, 750));
+        assertSame(COMPRESSED_JPEG, JpegExif.rewriteExifSegment(COMPRESSED_JPEG, 1000, 750));
+    }
+
+    /**
+     * big endian EXIF segment of 4000x3000 image with main IFD at 8, EXIF IFD at 38 holding
+     * 8 bytes of maker note and thumbnail IFD pointing to 4 bytes of thumbnail
+     *
+     * @param makerNoteLast true to store maker note after thumbnail instead of before it
+     */
+    private static byte[] exifSegment(boolean makerNoteLast) {
+        byte[] segment = new byte[TIFF_START + 110];
+        segment[0] = (byte) 0xFF;
+        segment[1] = (byte) 0xE1;
+        segment[2] = (byte) ((segment.length - 2) >> 8);
+        segment[3] = (byte) (segment.length - 2);
+        System.arraycopy(bytes('E', 'x', 'i', 'f', 0, 0), 0, segment, 4, 6);
+
+        ByteBuffer tiff = tiff(segment);
+        tiff.put(0, (byte) 'M').put(1, (byte) 'M').putShort(2, (short) 42).putInt(4, 8);
+        int makerNote = makerNoteLast ? 102 : 80;
+        int ifd1 = makerNoteLast ? 80 : 88;
+
+        // main IFD: image width and pointer to EXIF IFD, then link to thumbnail IFD
+        tiff.putShort(8, (short) 2);
+        entry(tiff, 10, 0x0100, 3, 1, 4000 << 16);
+        entry(tiff, 22, 0x8769, 4, 1, 38);
+        tiff.putInt(34, ifd1);
+
+        // EXIF IFD: pixel x as short, pixel y as long and maker note stored elsewhere
+        tiff.putShort(38, (short) 3);
+        entry(tiff, 40, 0xA002, 3, 1, 4000 << 16);
+        entry(tiff, 52, 0xA003, 4, 1, 3000);
+        entry(tiff, 64, 0x927C, 7, 8, makerNote);
+        tiff.putInt(76, 0);
+
+        // thumbnail IFD pointing to tiny JPEG right after it
+        tiff.putShort(ifd1, (short) 1);
+        entry(tiff, ifd1 + 2, 0x0201, 4, 1, ifd1 + 18);
+        tiff.putInt(ifd1 + 14, 0);
+        tiff.put(ifd1 + 18, (byte) 0xFF).put(ifd1 + 19, (byte) 0xD8)
+                .put(ifd1 + 20, (byte) 0xFF).put(ifd1 + 21, (byte) 0xD9);
+        return segment;
+    }
+
+    private static void entry(ByteBuffer tiff, int position, int tag, int type, int count, int value) {
+        tiff.putShort(position, (short) tag).putShort(position + 2, (short) type)
+                .putInt(position + 4, count).putInt(position + 8, value);
+    }
+
+    private static ByteBuffer tiff(byte[] segment) {
+        return ByteBuffer.wrap(segment, TIFF_START, segment.length - TIFF_START).slice()
+                .order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test(expected = IOException.class)
+    public void write_notJpeg_throws() throws IOException {
+        JpegExif.write(bytes(0x89, 'P'), null, new ByteArrayOutputStream());
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.photoweather;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of request scheduler and token bucket using fake clock and fake timer
+ */
+public class RequestSchedulerTest {
+
+    private long mNow;
+    private final List<Runnable> mTimerTasks = new ArrayList<>();
+    private final List<Long> mTimerDelays = new ArrayList<>();
+    private final List<String> mDispatched = new ArrayList<>();
+    private RequestScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mNow = 0;
+        // burst of 2 calls then 1 call every second
+        TokenBucket bucket = new TokenBucket(2, 60, 60_000, () -> mNow);
+        mScheduler = new RequestScheduler(bucket, (task, delay) -> {
+            mTimerTasks.add(task);
+            mTimerDelays.add(delay);
+        });
+    }
+
+    @Test
+    public void burst_isDispatchedAtOnce_restIsQueued() {
+        submit(RequestScheduler.Priority.USER_VISIBLE, "a");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "b");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "c");
+
+        assertEquals(2, mDispatched.size());
+        assertEquals(1, mScheduler.getQueueDepth());
+        assertEquals(1000, mScheduler.getCurrentWaitMillis());
+        assertEquals(1, mTimerTasks.size());
+        assertEquals(1000L, (long) mTimerDelays.get(0));
+    }
+
+    @Test
+    public void queuedCall_isDispatchedOnceTokenRefills() {
+        submit(RequestScheduler.Priority.USER_VISIBLE, "a");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "b");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "c");
+
+        mNow = 999;
+        mScheduler.dispatch();
+        assertEquals(2, mDispatched.size());
+
+        mNow = 1000;
+        fireTimer();
+        assertEquals("c", mDispatched.get(2));
+        assertEquals(0, mScheduler.getQueueDepth());
+        assertEquals(0, mScheduler.getCurrentWaitMillis());
+    }
+
+    @Test
+    public void userVisibleCall_jumpsAheadOfBackgroundCalls() {
+        submit(RequestScheduler.Priority.BACKGROUND, "a");
+        submit(RequestScheduler.Priority.BACKGROUND, "b");
+        submit(RequestScheduler.Priority.BACKGROUND, "refresh");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "search");
+
+        mNow = 1000;
+        fireTimer();
+        assertEquals("search", mDispatched.get(2));
+    }
+
+    @Test
+    public void promotedCall_jumpsAheadOfBackgroundCalls() {
+        submit(RequestScheduler.Priority.BACKGROUND, "a");
+        submit(RequestScheduler.Priority.BACKGROUND, "b");
+        submit(RequestScheduler.Priority.BACKGROUND, "refresh");
+        RequestScheduler.Ticket ticket = submit(RequestScheduler.Priority.BACKGROUND, "joined");
+        ticket.promote();
+
+        mNow = 1000;
+        fireTimer();
+        assertEquals("joined", mDispatched.get(2));
+    }
+
+    @Test
+    public void cancelledCall_isNeverDispatched() {
+        submit(RequestScheduler.Priority.USER_VISIBLE, "a");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "b");
+        submit(RequestScheduler.Priority.USER_VISIBLE, "c").cancel();
+
+        assertEquals(0, mScheduler.getQueueDepth());
+        mNow = 5000;
+        fireTimer();
+        assertEquals(2, mDispatched.size());
+    }
+
+    @Test
+    public void rateLimited_holdsBackCallsUntilRefill() {
+        mScheduler.onRateLimited();
+        submit(RequestScheduler.Priority.USER_VISIBLE, "a");
+
+        assertEquals(0, mDispatched.size());
+        assertEquals(1000, mScheduler.getCurrentWaitMillis());
+    }
+
+    private RequestScheduler.Ticket submit(RequestScheduler.Priority priority, String name) {
+        return mScheduler.submit(priority, () -> mDispatched.add(name));
+    }
+
+    private void fireTimer() {
+        List<Runnable> tasks = new ArrayList<>(mTimerTasks);
+        mTimerTasks.clear();
+        for (Runnable task : tasks)
+            task.run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.photoweather;
+
+import com.example.photoweather.models.CachedWeather;
+import com.example.photoweather.models.Weather;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of weather cache using fake DB and fake clock
+ */
+public class WeatherCacheTest {
+
+    private static final String CAIRO_JSON = "{\"name\":\"Cairo\","
+            + "\"weather\":[{\"main\":\"Clear\",\"description\":\"clear sky\"}],"
+            + "\"main\":{\"temp\":300.15,\"feels_like\":299.15,\"temp_min\":298.15,"
+            + "\"temp_max\":301.15,\"humidity\":40},"
+            + "\"wind\":{\"speed\":1.5},\"clouds\":{\"all\":0}}";
+
+    private final Gson mGson = new Gson();
+    private final FakeWeatherDao mDao = new FakeWeatherDao();
+    private long mNow;
+    private WeatherCache mCache;
+
+    @Before
+    public void setUp() {
+        mNow = 1000;
+        mCache = new WeatherCache(mDao, mGson, () -> mNow, 2, 100);
+    }
+
+    @Test
+    public void normalizeCity_ignoresCaseAndSpaces() {
+        assertEquals("new york", WeatherCache.normalizeCity("  New   YORK "));
+    }
+
+    @Test
+    public void remember_isFreshUntilTimeToLive() {
+        WeatherCache.Entry entry = mCache.remember("cairo", cairo());
+
+        assertSame(entry, mCache.getFromMemory("cairo"));
+        assertFalse(mCache.isStale(entry));
+
+        mNow += 100;
+        assertTrue(mCache.isStale(entry));
+    }
+
+    @Test
+    public void memory_evictsLeastRecentlyUsed() {
+        mCache.remember("a", cairo());
+        mCache.remember("b", cairo());
+        // touch a so b becomes least recently used
+        mCache.getFromMemory("a");
+        mCache.remember("c", cairo());
+
+        assertNotNull(mCache.getFromMemory("a"));
+        assertNull(mCache.getFromMemory("b"));
+        assertNotNull(mCache.getFromMemory("c"));
+    }
+
+    @Test
+    public void persist_thenReadFromDisk_promotesToMemory() {
+        WeatherCache.Entry entry = mCache.remember("cairo", cairo());
+        mCache.persist("cairo", entry);
+
+        WeatherCache fresh = new WeatherCache(mDao, mGson, () -> mNow, 2, 100);
+        assertNull(fresh.getFromMemory("cairo"));
+
+        WeatherCache.Entry fromDisk = fresh.getFromDisk("cairo");
+        assertNotNull(fromDisk);
+        assertEquals("Cairo", fromDisk.getWeather().getCity());
+        assertEquals(entry.getFetchedAt(), fromDisk.getFetchedAt());
+        assertNotNull(fresh.getFromMemory("cairo"));
+    }
+
+    @Test
+    public void getLatestCityKey_isCityFetchedLast() {
+        assertNull(mCache.getLatestCityKey());
+
+        mCache.persist("cairo", mCache.remember("cairo", cairo()));
+        mNow += 10;
+        mCache.persist("london", mCache.remember("london", cairo()));
+
+        assertEquals("london", mCache.getLatestCityKey());
+    }
+
+    @Test
+    public void entry_givesWeatherItsAge() {
+        mNow = 42;
+        WeatherCache.Entry entry = mCache.remember("cairo", cairo());
+
+        assertEquals(42, entry.getWeather().getFetchedAt());
+    }
+
+    @Test
+    public void getFromDisk_missingCity_returnsNull() {
+        assertNull(mCache.getFromDisk("atlantis"));
+    }
+
+    private Weather cairo() {
+        return mGson.fromJson(CAIRO_JSON, Weather.class);
+    }
+
+    private static class FakeWeatherDao implements WeatherDao {
+
+        private final Map<String, CachedWeather> mRows = new HashMap<>();
+
+        @Override
+        public void insert(CachedWeather cachedWeather) {
+            mRows.put(cachedWeather.getCityKey(), cachedWeather);
+        }
+
+        @Override
+        public CachedWeather getWeather(String cityKey) {
+            return mRows.get(cityKey);
+        }
+
+        @Override
+        public CachedWeather getLatestWeather() {
+            CachedWeather latest = null;
+            for (CachedWeather row : mRows.values()) {
+                if (latest == null || row.getFetchedAt() > latest.getFetchedAt())
+                    latest = row;
+            }
+            return latest;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.photoweather.capture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of picking readable text color from sampled pixels
+ */
+public class TextColorsTest {
+
+    @Test
+    public void reverseColor_keepsAlpha_invertsChannels() {
+        assertEquals(0x80FF00FF, TextColors.reverseColor(0x8000FF00));
+    }
+
+    @Test
+    public void contrastRatio_blackOnWhite_isMax() {
+        assertEquals(21.0, TextColors.contrastRatio(TextColors.BLACK, TextColors.WHITE), 0.01);
+        assertEquals(1.0, TextColors.contrastRatio(0xFF336699, 0xFF336699), 0.01);
+    }
+
+    @Test
+    public void contrastingColor_usesReverse_whenReadable() {
+        // reverse of dark blue is light yellow which is readable on it
+        assertEquals(0xFFEEEE77, TextColors.contrastingColor(0xFF111188));
+    }
+
+    @Test
+    public void contrastingColor_midGray_fallsBackToBlackOrWhite() {
+        int color = TextColors.contrastingColor(0xFF808080);
+        assertTrue(color == TextColors.BLACK || color == TextColors.WHITE);
+        assertTrue(TextColors.contrastRatio(color, 0xFF808080) >= TextColors.MIN_CONTRAST);
+    }
+
+    @Test
+    public void averageColor_ofSamples_isOpaqueMean() {
+        int[] pixels = {0xFF000000, 0x00FFFFFF, 0xFF123456};
+        assertEquals(0xFF7F7F7F, SampledColorAnalyzer.averageColor(pixels, 2));
+        assertEquals(TextColors.WHITE, SampledColorAnalyzer.averageColor(pixels, 0));
+    }
+
+    @Test
+    public void step_limitsSamplesPerAxis() {
+        assertEquals(1, SampledColorAnalyzer.step(10));
+        assertEquals(1, SampledColorAnalyzer.step(SampledColorAnalyzer.SAMPLES_PER_AXIS));
+        assertEquals(128, SampledColorAnalyzer.step(4096));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.photoweather.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of latency histogram buckets and percentiles
+ */
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram mHistogram = new LatencyHistogram("test");
+
+    @Test
+    public void empty_reportsZero() {
+        assertEquals(0, mHistogram.getCount());
+        assertEquals(0, mHistogram.getMeanNanos());
+        assertEquals(0, mHistogram.getPercentileNanos(50));
+        assertEquals(0, mHistogram.getMaxNanos());
+    }
+
+    @Test
+    public void buckets_growWithDuration() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, LatencyHistogram.bucketOf(TimeUnit.MICROSECONDS.toNanos(10)));
+        assertEquals(1, LatencyHistogram.bucketOf(TimeUnit.MICROSECONDS.toNanos(11)));
+        assertTrue(LatencyHistogram.bucketOf(TimeUnit.MILLISECONDS.toNanos(1))
+                < LatencyHistogram.bucketOf(TimeUnit.MILLISECONDS.toNanos(2)));
+        // longer than last bucket still lands in last bucket
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_areWithinBucketOfRealValue() {
+        // 1ms to 100ms
+        for (int i = 1; i <= 100; i++)
+            mHistogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+
+        assertEquals(100, mHistogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50_500), mHistogram.getMeanNanos());
+        assertWithinBucket(TimeUnit.MILLISECONDS.toNanos(50), mHistogram.getPercentileNanos(50));
+        assertWithinBucket(TimeUnit.MILLISECONDS.toNanos(90), mHistogram.getPercentileNanos(90));
+        assertWithinBucket(TimeUnit.MILLISECONDS.toNanos(99), mHistogram.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), mHistogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentile_neverExceedsMax() {
+        mHistogram.record(TimeUnit.MICROSECONDS.toNanos(1001));
+
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1001), mHistogram.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1001), mHistogram.getMaxNanos());
+    }
+
+    @Test
+    public void negativeDuration_isCountedAsZero() {
+        mHistogram.record(-5);
+
+        assertEquals(1, mHistogram.getCount());
+        assertEquals(0, mHistogram.getMaxNanos());
+        assertEquals(0, mHistogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void summary_isInMilliseconds() {
+        mHistogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+
+        assertEquals("count=1 mean=2.00ms p50=2.00ms p90=2.00ms p99=2.00ms max=2.00ms", mHistogram.summary());
+    }
+
+    /**
+     * @param expected real duration
+     * @param actual   percentile reported, upper bound of bucket so at most 25% above
+     */
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > " + expected + " * 1.25", actual <= expected * 1.25);
+    }
+}
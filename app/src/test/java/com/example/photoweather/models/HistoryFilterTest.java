@@ -0,0 +1,65 @@
+package com.example.photoweather.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of filters history is shown through
+ */
+public class HistoryFilterTest {
+
+    @Test
+    public void all_isSameFilter() {
+        assertTrue(HistoryFilter.all().isAll());
+        assertEquals(HistoryFilter.all(), HistoryFilter.all());
+    }
+
+    @Test
+    public void sameValues_areEqual() {
+        assertEquals(HistoryFilter.byCity("Cairo"), HistoryFilter.byCity("Cairo"));
+        assertEquals(HistoryFilter.byCity("Cairo").hashCode(), HistoryFilter.byCity("Cairo").hashCode());
+        assertNotEquals(HistoryFilter.byCity("Cairo"), HistoryFilter.byCity("London"));
+        assertNotEquals(HistoryFilter.byDateRange(0, 10), HistoryFilter.byTemperature(0, 10));
+    }
+
+    @Test
+    public void byCity_ignoresCaseAndSpaces() {
+        HistoryFilter typed = HistoryFilter.byCity("  New   YORK ");
+        assertEquals(HistoryFilter.byCity("new york"), typed);
+        assertEquals(HistoryFilter.byCity("new york").hashCode(), typed.hashCode());
+        // key is what photos are queried by, city is kept as typed to be shown
+        assertEquals("new york", typed.getCityKey());
+        assertEquals("  New   YORK ", typed.getCity());
+    }
+
+    @Test
+    public void ranges_areOrdered() {
+        HistoryFilter dates = HistoryFilter.byDateRange(20, 10);
+        assertEquals(10, dates.getFrom());
+        assertEquals(20, dates.getTo());
+
+        HistoryFilter temperatures = HistoryFilter.byTemperature(5, -5);
+        assertEquals(-5, temperatures.getMinTemperature(), 0);
+        assertEquals(5, temperatures.getMaxTemperature(), 0);
+    }
+
+    @Test
+    public void toMatchQuery_matchesStartOfEveryWord() {
+        assertEquals("rain* cairo*", HistoryFilter.toMatchQuery("  Rain, CAIRO "));
+        assertEquals("zürich*", HistoryFilter.toMatchQuery("Zürich"));
+    }
+
+    @Test
+    public void toMatchQuery_dropsFullTextSyntax() {
+        // operators become plain words as they are lower case
+        assertEquals("rain* or* snow*", HistoryFilter.toMatchQuery("\"rain\" OR -snow*"));
+        assertEquals("", HistoryFilter.toMatchQuery(" *:- "));
+    }
+
+    @Test
+    public void bySearch_withoutWords_isAll() {
+        assertTrue(HistoryFilter.bySearch("  ").isAll());
+        assertEquals(HistoryFilter.bySearch("rain"), HistoryFilter.bySearch("Rain "));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.photoweather.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Collects classes and methods used by startup, tab switching and history scrolling
+ * so they are compiled ahead of time once app is installed
+ * <p>
+ * run with ./gradlew :benchmark:connectedBenchmarkAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.photoweather.benchmark.BaselineProfileGenerator
+ * on a rooted API 28+ device or emulator then copy generated profile to app/src/main/baseline-prof.txt
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule mBaselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        Journeys.seedHistory(Journeys.HISTORY_SIZE);
+        mBaselineProfileRule.collectBaselineProfile(
+                Journeys.PACKAGE_NAME,
+                Collections.emptyList(),
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.openHistory(scope);
+                    Journeys.scrollHistory(scope);
+                    Journeys.openWeatherInfo(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
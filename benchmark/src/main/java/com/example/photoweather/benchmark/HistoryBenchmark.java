@@ -0,0 +1,77 @@
+package com.example.photoweather.benchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Measures frame timing of switching tabs and of scrolling a history of 5,000 photos
+ * <p>
+ * run with ./gradlew :benchmark:connectedBenchmarkAndroidTest on a physical device
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryBenchmark {
+
+    // times each journey is measured
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void seedHistory() {
+        Journeys.seedHistory(Journeys.HISTORY_SIZE);
+    }
+
+    @Test
+    public void switchTabs() {
+        mBenchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.openHistory(scope);
+                    Journeys.openWeatherInfo(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void scrollHistory() {
+        mBenchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    // only scrolling is measured so tab is opened before measuring
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.openHistory(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollHistory(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
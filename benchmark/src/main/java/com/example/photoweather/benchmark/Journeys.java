@@ -0,0 +1,104 @@
+package com.example.photoweather.benchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * @author Ali Adel
+ * <p>
+ * User journeys shared by benchmarks and baseline profile generator so what is measured
+ * is exactly what is compiled ahead of time
+ */
+final class Journeys {
+
+    // package of app under test
+    static final String PACKAGE_NAME = "com.example.photoweather";
+    // photos in history while scrolling is measured
+    static final int HISTORY_SIZE = 5000;
+
+    // action of receiver in benchmark build of app that fills history
+    private static final String ACTION_SEED_HISTORY = "com.example.photoweather.SEED_HISTORY";
+    // max time to wait for UI to show what journey needs
+    private static final long UI_TIMEOUT_MILLIS = 5000;
+    // flings done in 1 pass over history
+    private static final int FLINGS = 10;
+
+    // tabs of main activity, tab layout shows them in capitals so match any case
+    private static final BySelector HISTORY_TAB = By.text(Pattern.compile("history", Pattern.CASE_INSENSITIVE));
+    private static final BySelector WEATHER_TAB = By.text(Pattern.compile("weather info", Pattern.CASE_INSENSITIVE));
+    // grid of history photos
+    private static final BySelector HISTORY_GRID = By.res(PACKAGE_NAME, "recycler_view");
+
+    /**
+     * not to be instanced, only holds journeys
+     */
+    private Journeys() {
+    }
+
+    /**
+     * fill history of app with fake photos, does nothing if history already has that many
+     *
+     * @param count number of photos history should have
+     */
+    static void seedHistory(int count) {
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        try {
+            // am broadcast returns once receiver finished seeding
+            device.executeShellCommand("am broadcast -a " + ACTION_SEED_HISTORY
+                    + " -p " + PACKAGE_NAME + " --ei count " + count);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't seed history", e);
+        }
+    }
+
+    /**
+     * switch to history tab and wait until grid is shown
+     *
+     * @param scope of benchmark running app
+     */
+    static void openHistory(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        device.wait(Until.findObject(HISTORY_TAB), UI_TIMEOUT_MILLIS).click();
+        device.wait(Until.hasObject(HISTORY_GRID), UI_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * switch back to weather info tab and wait until it is shown
+     *
+     * @param scope of benchmark running app
+     */
+    static void openWeatherInfo(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        device.wait(Until.findObject(WEATHER_TAB), UI_TIMEOUT_MILLIS).click();
+        device.wait(Until.gone(HISTORY_GRID), UI_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * fling history grid down then back up, history tab must be shown
+     *
+     * @param scope of benchmark running app
+     */
+    static void scrollHistory(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 grid = device.wait(Until.findObject(HISTORY_GRID), UI_TIMEOUT_MILLIS);
+        // keep gestures away from edges so they aren't taken as system navigation
+        grid.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < FLINGS; i++) {
+            grid.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+        for (int i = 0; i < FLINGS; i++) {
+            grid.fling(Direction.UP);
+            device.waitForIdle();
+        }
+    }
+}
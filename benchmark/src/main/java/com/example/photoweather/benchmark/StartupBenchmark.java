@@ -0,0 +1,82 @@
+package com.example.photoweather.benchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Measures time until first frame and until history is shown (reportFullyDrawn) when
+ * main activity is started cold and warm, with and without baseline profile
+ * <p>
+ * run with ./gradlew :benchmark:connectedBenchmarkAndroidTest on a physical device
+ */
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    // times each start is measured
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    private final StartupMode mStartupMode;
+    private final CompilationMode mCompilationMode;
+
+    /**
+     * @param startupMode     how much of app is already in memory when activity starts
+     * @param compilationMode how much of app is compiled ahead of time
+     */
+    public StartupBenchmark(StartupMode startupMode, CompilationMode compilationMode) {
+        this.mStartupMode = startupMode;
+        this.mCompilationMode = compilationMode;
+    }
+
+    /**
+     * cold start without any ahead of time compilation is what users got before baseline profile,
+     * partial compilation uses baseline profile installed with app
+     */
+    @Parameterized.Parameters(name = "startup={0},compilation={1}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(
+                new Object[]{StartupMode.COLD, new CompilationMode.None()},
+                new Object[]{StartupMode.COLD, new CompilationMode.Partial()},
+                new Object[]{StartupMode.WARM, new CompilationMode.Partial()});
+    }
+
+    @BeforeClass
+    public static void seedHistory() {
+        // startup loads first page of history so it is measured with a full history
+        Journeys.seedHistory(Journeys.HISTORY_SIZE);
+    }
+
+    @Test
+    public void startup() {
+        mBenchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                mCompilationMode,
+                mStartupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}